@@ -0,0 +1,58 @@
+package com.example.TelegramWordsBot.benchmark;
+
+import com.example.TelegramWordsBot.dto.UserState;
+import com.example.TelegramWordsBot.model.User;
+import com.example.TelegramWordsBot.repository.UserRepository;
+import com.example.TelegramWordsBot.service.UserService;
+import com.example.TelegramWordsBot.service.UserSessionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message authorization check: the BCrypt comparison that used to run on every
+ * message against {@link UserService#isAuthorized} with its verified-hash memo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthorizationBenchmark {
+
+    private static final String SECRET = "benchmark-secret";
+
+    private PasswordEncoder passwordEncoder;
+    private UserService userService;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        passwordEncoder = new BCryptPasswordEncoder();
+        userService = new UserService(
+                BenchmarkSupport.stub(UserRepository.class),
+                passwordEncoder,
+                meterRegistry,
+                new UserSessionCache(100, Duration.ofMinutes(30), meterRegistry),
+                null // isAuthorized never writes
+        );
+        BenchmarkSupport.inject(userService, "secretKey", SECRET);
+
+        user = new User(1L, UserState.IDLE, null, passwordEncoder.encode(SECRET));
+    }
+
+    @Benchmark
+    public boolean bcryptPerMessage() {
+        return passwordEncoder.matches(SECRET, user.getAuthKey());
+    }
+
+    @Benchmark
+    public boolean isAuthorized() {
+        return userService.isAuthorized(user);
+    }
+}
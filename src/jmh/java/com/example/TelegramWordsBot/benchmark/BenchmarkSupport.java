@@ -0,0 +1,62 @@
+package com.example.TelegramWordsBot.benchmark;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wiring helpers for benchmarks that build services without a Spring context.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Stand-in for an external dependency that the benchmarked code path never calls.
+     */
+    static <T> T stub(Class<T> type) {
+        Object stub = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+            throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not stubbed");
+        });
+        return type.cast(stub);
+    }
+
+    /**
+     * Sets a field that Spring would normally inject with {@code @Value}.
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException("No field " + fieldName + " in " + target.getClass().getName());
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    /**
+     * Word rows shaped like a typical model reply, with Cyrillic translations and IPA.
+     */
+    static List<WordData> words(int count) {
+        List<WordData> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            WordData word = new WordData();
+            word.setOriginal("word" + i);
+            word.setTranslation("слово " + i);
+            word.setTranscription("/wɜːd " + i + "/");
+            words.add(word);
+        }
+        return words;
+    }
+}
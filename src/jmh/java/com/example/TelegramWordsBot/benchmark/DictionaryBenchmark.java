@@ -0,0 +1,50 @@
+package com.example.TelegramWordsBot.benchmark;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.util.WordDictionary;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in the offline {@link WordDictionary}, for a word it has and one it
+ * does not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DictionaryBenchmark {
+
+    @Param({"1000", "100000"})
+    private int entries;
+
+    private WordDictionary dictionary;
+    private String present;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder source = new StringBuilder();
+        for (WordData word : BenchmarkSupport.words(entries)) {
+            source.append(word.getOriginal()).append('\t')
+                    .append(word.getTranslation()).append('\t')
+                    .append(word.getTranscription()).append('\n');
+        }
+        dictionary = WordDictionary.load(new BufferedReader(new StringReader(source.toString())));
+        present = "word" + entries / 2;
+    }
+
+    @Benchmark
+    public WordData hit() {
+        return dictionary.lookup(present);
+    }
+
+    @Benchmark
+    public WordData miss() {
+        return dictionary.lookup("definitely not there");
+    }
+}
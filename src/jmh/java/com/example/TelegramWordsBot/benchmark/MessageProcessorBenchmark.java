@@ -0,0 +1,57 @@
+package com.example.TelegramWordsBot.benchmark;
+
+import com.example.TelegramWordsBot.util.UserMessageProcessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserMessageProcessor#submit} throughput with several threads submitting
+ * at once, either for many different chats or all for the same chat. Tasks are
+ * empty, so the numbers cover only the per-chat bookkeeping and the hand-off to
+ * the worker pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class MessageProcessorBenchmark {
+
+    private static final int CHATS = 10_000;
+    private static final Runnable NO_OP = () -> {
+    };
+
+    private UserMessageProcessor processor;
+
+    @Setup
+    public void setUp() {
+        processor = new UserMessageProcessor(8, 2, new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        processor.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class ChatCursor {
+        private long next;
+
+        long nextChat() {
+            return next++ % CHATS;
+        }
+    }
+
+    @Benchmark
+    public boolean submitDistinctChats(ChatCursor cursor) {
+        return processor.submit(cursor.nextChat(), NO_OP);
+    }
+
+    @Benchmark
+    public boolean submitSameChat() {
+        return processor.submit(1L, NO_OP);
+    }
+}
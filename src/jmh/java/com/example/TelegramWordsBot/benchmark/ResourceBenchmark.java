@@ -0,0 +1,52 @@
+package com.example.TelegramWordsBot.benchmark;
+
+import com.example.TelegramWordsBot.util.MessageTemplates;
+import com.example.TelegramWordsBot.util.ResourceUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a message template from the classpath compared with the preloaded
+ * {@link MessageTemplates}, and building the model prompt both ways.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResourceBenchmark {
+
+    private static final List<String> WORDS = List.of("apple", "run out of", "despite", "thorough", "whereas");
+
+    @Param({"promt_GPT", "start_message.html"})
+    private String fileName;
+
+    private MessageTemplates templates;
+
+    @Setup
+    public void setUp() {
+        templates = new MessageTemplates("");
+    }
+
+    @Benchmark
+    public String readMessage() {
+        return ResourceUtils.readMessage(fileName);
+    }
+
+    @Benchmark
+    public String templateRegistry() {
+        return templates.get(fileName);
+    }
+
+    @Benchmark
+    public String formatPrompt() {
+        return String.format(ResourceUtils.readMessage("promt_GPT"), String.join("\n", WORDS));
+    }
+
+    @Benchmark
+    public String renderPrompt() {
+        return templates.prompt("promt_GPT").render(WORDS);
+    }
+}
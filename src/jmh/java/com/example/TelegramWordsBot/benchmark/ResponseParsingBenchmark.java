@@ -0,0 +1,46 @@
+package com.example.TelegramWordsBot.benchmark;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.util.WordListParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Code fence cleanup and Jackson parsing of a complete ChatGPT reply.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResponseParsingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int words;
+
+    private WordListParser parser;
+    private String response;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        parser = new WordListParser(objectMapper);
+        response = "```json\n"
+                + objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(BenchmarkSupport.words(words))
+                + "\n```";
+    }
+
+    @Benchmark
+    public String stripCodeFence() {
+        return WordListParser.stripCodeFence(response);
+    }
+
+    @Benchmark
+    public List<WordData> parse() throws JsonProcessingException {
+        return parser.parse(response);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.TelegramWordsBot.benchmark;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.service.GoogleSheetsService;
+import com.google.api.services.sheets.v4.model.RowData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the colored rows of a Sheets append, without sending it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SheetRowsBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int words;
+
+    private List<WordData> rows;
+
+    @Setup
+    public void setUp() {
+        rows = BenchmarkSupport.words(words);
+    }
+
+    @Benchmark
+    public List<RowData> buildRows() {
+        return GoogleSheetsService.buildRows(rows, true);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.model.WordJob;
+import com.example.TelegramWordsBot.service.WordJobService;
+import com.example.TelegramWordsBot.util.UserMessageProcessor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.generics.BotSession;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Drains the bot on shutdown (SIGTERM included), in this order:
+ * <ol>
+ *     <li>stop taking updates, so Telegram keeps them for the next instance;</li>
+ *     <li>let accepted tasks finish within {@code bot.shutdown.drain-timeout}, then
+ *     interrupt the rest and wait {@code bot.shutdown.interrupt-timeout} for them to exit;</li>
+ *     <li>release the jobs of tasks that exited unfinished, with their progress
+ *     saved, and tell their users the work will continue;</li>
+ *     <li>ask the users whose messages were accepted but never handled to resend them;</li>
+ *     <li>send what is still queued for Telegram, within {@code bot.shutdown.send-timeout}.</li>
+ * </ol>
+ * Runs before the task scheduler stops, so write-queue flushes and lease
+ * heartbeats keep going while tasks drain.
+ */
+@Slf4j
+@Component
+public class GracefulShutdown implements SmartLifecycle {
+
+    // Stops after any default-phase bean and well before the executors (Integer.MAX_VALUE / 2)
+    private static final int PHASE = Integer.MAX_VALUE - 1024;
+
+    private final UserMessageProcessor messageProcessor;
+    private final WordJobService wordJobService;
+    private final TelegramSendQueue sendQueue;
+    private final TelegramBot bot;
+    private final Optional<BotSession> pollingSession;
+    private final Optional<TelegramWebhookServer> webhookServer;
+    private final Duration drainTimeout;
+    private final Duration interruptTimeout;
+    private final Duration sendTimeout;
+
+    private volatile boolean running;
+
+    public GracefulShutdown(
+            UserMessageProcessor messageProcessor,
+            WordJobService wordJobService,
+            TelegramSendQueue sendQueue,
+            TelegramBot bot,
+            Optional<BotSession> pollingSession,
+            Optional<TelegramWebhookServer> webhookServer,
+            @Value("${bot.shutdown.drain-timeout:25s}") Duration drainTimeout,
+            @Value("${bot.shutdown.interrupt-timeout:5s}") Duration interruptTimeout,
+            @Value("${bot.shutdown.send-timeout:5s}") Duration sendTimeout
+    ) {
+        this.messageProcessor = messageProcessor;
+        this.wordJobService = wordJobService;
+        this.sendQueue = sendQueue;
+        this.bot = bot;
+        this.pollingSession = pollingSession;
+        this.webhookServer = webhookServer;
+        this.drainTimeout = drainTimeout;
+        this.interruptTimeout = interruptTimeout;
+        this.sendTimeout = sendTimeout;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        log.info("Shutting down: no longer taking updates, draining for up to {}", drainTimeout);
+        pollingSession.ifPresent(BotSession::stop);
+        webhookServer.ifPresent(TelegramWebhookServer::stop);
+
+        try {
+            UserMessageProcessor.DrainResult drained = messageProcessor.drain(drainTimeout, interruptTimeout);
+            List<WordJob> checkpointed = wordJobService.checkpointHeld();
+
+            Set<Long> chats = new LinkedHashSet<>();
+            checkpointed.forEach(job -> chats.add(job.getChatId()));
+            chats.forEach(chatId -> bot.sendMessage(chatId,
+                    "⏸ Бот оновлюється. Обробку ваших слів буде продовжено автоматично за хвилину."));
+
+            // Their updates were already acknowledged, so Telegram will not deliver them again
+            drained.droppedChats().forEach(chatId -> bot.sendMessage(chatId,
+                    "⚠️ Бот перезапускався і не встиг обробити ваше останнє повідомлення. Надішліть його ще раз, будь ласка."));
+
+            boolean sent = sendQueue.awaitEmpty(sendTimeout);
+            log.info("Drain finished: {} tasks completed, {} cut off, {} still running, {} jobs checkpointed, {} chats asked to resend{}",
+                    drained.finished(), drained.cutOff(), drained.stuck(), checkpointed.size(), drained.droppedChats().size(),
+                    sent ? "" : ", some Telegram messages were not sent");
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while draining; unfinished jobs resume once their lease expires");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.dto.DueCards;
+import com.example.TelegramWordsBot.service.ReviewService;
+import com.example.TelegramWordsBot.service.ShardLeaseService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Once a day tells every user with due cards how many are waiting. Users are read
+ * in chatId order, one batch per query, so a large table is never loaded at once.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReviewReminder {
+
+    private final ReviewService reviewService;
+    private final TelegramBot bot;
+    private final ShardLeaseService shardLeaseService;
+
+    @Value("${review.reminder-batch:500}")
+    private int batchSize;
+
+    @Scheduled(cron = "${review.reminder-cron:0 0 18 * * *}")
+    public void remindDueUsers() {
+        // Group chats have negative ids
+        Long afterChatId = Long.MIN_VALUE;
+        int reminded = 0;
+        List<DueCards> batch;
+        do {
+            batch = reviewService.dueCards(afterChatId, batchSize);
+            for (DueCards due : batch) {
+                // In clustered mode every node reminds the chats of its own shards
+                if (shardLeaseService.isLocal(due.chatId()) && !reviewService.isReviewing(due.chatId())) {
+                    bot.sendMessage(due.chatId(), "🔔 У вас " + due.count()
+                            + " слів для повторення. Надішліть /review, щоб почати.");
+                    reminded++;
+                }
+            }
+            if (!batch.isEmpty()) {
+                afterChatId = batch.get(batch.size() - 1).chatId();
+            }
+        } while (batch.size() == batchSize);
+
+        log.info("Sent review reminders to {} users", reminded);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.model.SheetSync;
+import com.example.TelegramWordsBot.service.ShardLeaseService;
+import com.example.TelegramWordsBot.service.SheetSyncService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically takes over sheet syncs left running by a stopped or crashed instance
+ * and continues them from their saved cursor. Only syncs of chats in shards this
+ * node holds are claimed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SheetSyncRecovery {
+
+    private final SheetSyncService syncService;
+    private final SheetSyncRunner syncRunner;
+    private final TelegramBot bot;
+    private final ShardLeaseService shardLeaseService;
+
+    @Value("${sync.recovery-batch:10}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${sync.recovery-interval:30000}", initialDelayString = "${sync.recovery-interval:30000}")
+    public void resumeExpired() {
+        List<Integer> shards = shardLeaseService.localShards();
+        if (shards.isEmpty()) {
+            return;
+        }
+        for (SheetSync sync : syncService.claimExpired(shardLeaseService.shardCount(), shards, batchSize)) {
+            if (!shardLeaseService.isLocal(sync.getChatId())) {
+                // The shard moved since the claim; its new owner picks the sync up
+                log.debug("Leaving sync for chatId={} to the chat's new owner", sync.getChatId());
+                syncService.release(sync);
+                continue;
+            }
+            syncRunner.resume(sync, bot);
+        }
+    }
+}
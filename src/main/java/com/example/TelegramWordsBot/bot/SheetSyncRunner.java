@@ -0,0 +1,136 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.exception.SyncLeaseLostException;
+import com.example.TelegramWordsBot.model.SheetSync;
+import com.example.TelegramWordsBot.service.SheetSyncService;
+import com.example.TelegramWordsBot.util.TokenBucket;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs sheet syncs in the background on {@code sync.workers} threads of their own,
+ * so a long import never holds a chat worker and the user can keep chatting.
+ * Reads from all syncs share {@code sync.requests-per-minute}, which keeps them
+ * well inside the Sheets read quota.
+ */
+@Slf4j
+@Component
+public class SheetSyncRunner {
+
+    private final SheetSyncService syncService;
+    private final ExecutorService executor;
+    private final TokenBucket rateLimiter;
+    private final AtomicInteger running = new AtomicInteger();
+
+    public SheetSyncRunner(
+            SheetSyncService syncService,
+            @Value("${sync.workers:2}") int workers,
+            @Value("${sync.requests-per-minute:30}") int requestsPerMinute,
+            MeterRegistry meterRegistry
+    ) {
+        this.syncService = syncService;
+        this.executor = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("sheet-sync-"));
+        this.rateLimiter = new TokenBucket(requestsPerMinute, Duration.ofMinutes(1));
+
+        Gauge.builder("sync.running", running, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Starts or resumes the chat's sync.
+     *
+     * @return {@code false} if a sync for the chat is already running
+     */
+    public boolean start(Long chatId, String sheetId, TelegramBot bot) {
+        SheetSync sync = syncService.start(chatId, sheetId);
+        if (sync == null) {
+            return false;
+        }
+        String text = sync.getNextRow() > 1
+                ? "🔄 Продовжую синхронізацію таблиці з рядка " + sync.getNextRow() + "..."
+                : "🔄 Синхронізую таблицю...";
+        submit(sync, bot, bot.sendMessage(chatId, text));
+        return true;
+    }
+
+    /**
+     * Continues a sync taken over after its previous owner stopped.
+     */
+    public void resume(SheetSync sync, TelegramBot bot) {
+        submit(sync, bot, bot.sendMessage(sync.getChatId(),
+                "🔄 Продовжую синхронізацію таблиці після перезапуску..."));
+    }
+
+    private void submit(SheetSync sync, TelegramBot bot, CompletableFuture<Message> progress) {
+        executor.execute(() -> run(sync, bot, progress));
+    }
+
+    private void run(SheetSync sync, TelegramBot bot, CompletableFuture<Message> progress) {
+        Long chatId = sync.getChatId();
+        running.incrementAndGet();
+        try {
+            boolean finished = false;
+            while (!finished) {
+                acquireReadPermit();
+                finished = syncService.importWindow(sync);
+                reportProgress(bot, chatId, progress, sync.getRowsImported());
+            }
+            bot.sendMessage(chatId, "✅ Синхронізацію завершено! Імпортовано слів: " + sync.getRowsImported());
+
+        } catch (SyncLeaseLostException e) {
+            // The instance that took the sync over carries on and reports to the user
+            log.info("Stopped sync for chatId={}: {}", chatId, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Sync for chatId={} interrupted at row {}", chatId, sync.getNextRow());
+            syncService.release(sync);
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // Shutdown interrupted a read; leave the sync to be resumed
+                log.info("Sync for chatId={} interrupted at row {}", chatId, sync.getNextRow());
+                syncService.release(sync);
+                return;
+            }
+            log.error("Sync for chatId={} failed at row {}", chatId, sync.getNextRow(), e);
+            syncService.markFailed(sync, e);
+            bot.sendMessage(chatId, "⚠️ Не вдалося синхронізувати таблицю. Надішліть /sync ще раз, щоб продовжити з місця зупинки.");
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private void acquireReadPermit() throws InterruptedException {
+        while (!rateLimiter.tryAcquire()) {
+            Thread.sleep(Math.max(1, rateLimiter.timeToNextToken().toMillis()));
+        }
+    }
+
+    private static void reportProgress(TelegramBot bot, Long chatId, CompletableFuture<Message> progress, long imported) {
+        // Null if sending the progress message failed
+        Message message = progress.exceptionally(e -> null).join();
+        if (message != null) {
+            bot.editMessage(chatId, message.getMessageId(), "🔄 Синхронізую таблицю... Імпортовано: " + imported);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Interrupted syncs give up their lease and are resumed from their cursor
+        executor.shutdownNow();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Sheet syncs did not stop in time; they resume once their lease expires");
+        }
+    }
+}
@@ -1,39 +1,106 @@
 package com.example.TelegramWordsBot.bot;
 
 import com.example.TelegramWordsBot.exception.TelegramMessageSendException;
-import com.example.TelegramWordsBot.util.ResourceUtils;
+import com.example.TelegramWordsBot.util.MessageTemplates;
 import com.example.TelegramWordsBot.util.UserMessageProcessor;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.methods.send.SendAnimation;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives updates and sends replies. Outgoing calls go through {@link TelegramSendQueue}
+ * and return futures, so callers never wait on the Bot API unless they need the result.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class TelegramBot extends TelegramLongPollingBot {
 
-    @Value("${telegram.bot.token}")
-    private String token;
-
-    @Value("${telegram.bot.username}")
-    private String username;
-
+    private final String token;
+    private final String username;
     private final UserMessageProcessor messageProcessor;
     private final TelegramMessageHandler messageHandler;
+    private final TelegramSendQueue sendQueue;
+    private final MessageTemplates messageTemplates;
+    private final MeterRegistry meterRegistry;
+
+    // GIF URL to the file_id Telegram returned after the first upload
+    private final Map<String, String> animationFileIds = new ConcurrentHashMap<>();
+
+    public TelegramBot(
+            @Value("${telegram.bot.token}") String token,
+            @Value("${telegram.bot.username}") String username,
+            @Value("${telegram.bot.api-url:https://api.telegram.org}") String apiUrl,
+            @Value("${telegram.send.threads:8}") int sendThreads,
+            UserMessageProcessor messageProcessor,
+            TelegramMessageHandler messageHandler,
+            TelegramSendQueue sendQueue,
+            MessageTemplates messageTemplates,
+            MeterRegistry meterRegistry
+    ) {
+        super(botOptions(apiUrl, sendThreads), token);
+        this.token = token;
+        this.username = username;
+        this.messageProcessor = messageProcessor;
+        this.messageHandler = messageHandler;
+        this.sendQueue = sendQueue;
+        this.messageTemplates = messageTemplates;
+        this.meterRegistry = meterRegistry;
+    }
+
+    private static DefaultBotOptions botOptions(String apiUrl, int sendThreads) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setBaseUrl(apiUrl + "/bot");
+        // executeAsync runs on this pool, the library default is a single thread
+        options.setMaxThreads(sendThreads);
+        return options;
+    }
 
     @Override
     public void onUpdateReceived(Update update) {
+        BotApiMethod<?> reply = handleUpdate(update);
+        if (reply != null) {
+            send(update.getMessage().getChatId(), "send reply", () -> executeAsync(reply));
+        }
+    }
+
+    /**
+     * Passes the update to the handler pipeline. A reply that is known right away is
+     * returned rather than sent, so in webhook mode it can go back in the HTTP response.
+     *
+     * @return the immediate reply, or {@code null} if there is none
+     */
+    public BotApiMethod<?> handleUpdate(Update update) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ReceivedUpdate received = receiveUpdate(update);
+            outcome = received.outcome();
+            return received.reply();
+        } finally {
+            sample.stop(meterRegistry.timer("bot.updates", "outcome", outcome));
+        }
+    }
+
+    private ReceivedUpdate receiveUpdate(Update update) {
         if (!update.hasMessage() || !update.getMessage().hasText()) {
             log.debug("Received update without message or text, skipping");
-            return;
+            return new ReceivedUpdate("skipped", null);
         }
 
         Long chatId = update.getMessage().getChatId();
@@ -46,50 +113,80 @@ public class TelegramBot extends TelegramLongPollingBot {
 
         if (!accepted) {
             log.debug("Message from chatId={} rejected, user is still processing previous message", chatId);
-            sendMessage(chatId, "⏳ Зачекай, я ще обробляю попереднє повідомлення");
+            SendMessage reply = new SendMessage();
+            reply.setChatId(String.valueOf(chatId));
+            reply.setText("⏳ Зачекай, я ще обробляю попереднє повідомлення");
+            return new ReceivedUpdate("rejected", reply);
         }
+        return new ReceivedUpdate("accepted", null);
     }
 
     // ================= Telegram API =================
 
-    public Message sendMessage(long chatId, String text) {
+    public CompletableFuture<Message> sendMessage(long chatId, String text) {
         log.debug("Sending message to chatId={}", chatId);
-        
-        SendMessage message = new SendMessage();
-        message.setChatId(String.valueOf(chatId));
-        message.setText(text);
 
-        try {
-            Message result = execute(message);
-            log.debug("Message sent successfully to chatId={}", chatId);
-            return result;
-        } catch (TelegramApiException e) {
-            log.error("Failed to send message to chatId={}", chatId, e);
-            throw new TelegramMessageSendException(
-                    "Failed to send message to chatId=" + chatId, e
-            );
-        }
+        return send(chatId, "send message", () -> {
+            SendMessage message = new SendMessage();
+            message.setChatId(String.valueOf(chatId));
+            message.setText(text);
+            return executeAsync(message);
+        });
+    }
+
+    public CompletableFuture<Serializable> editMessage(long chatId, int messageId, String text) {
+        log.debug("Editing message {} in chatId={}", messageId, chatId);
+
+        return send(chatId, "edit message", () -> {
+            EditMessageText edit = new EditMessageText();
+            edit.setChatId(String.valueOf(chatId));
+            edit.setMessageId(messageId);
+            edit.setText(text);
+            return executeAsync(edit);
+        });
     }
 
-    public void sendGifWithText(Long chatId, String gifUrl, String fileName) {
+    /**
+     * Sends the GIF by URL the first time, then by the {@code file_id} Telegram
+     * assigned to it, so the file is not fetched from the URL again.
+     */
+    public CompletableFuture<Message> sendGifWithText(Long chatId, String gifUrl, String fileName) {
         log.debug("Sending GIF to chatId={} with caption from file: {}", chatId, fileName);
-        
-        SendAnimation animation = new SendAnimation();
-        animation.setChatId(chatId.toString());
-        animation.setParseMode("HTML");
-        animation.setAnimation(new InputFile(gifUrl));
-
-        String caption = ResourceUtils.readMessage(fileName);
-        animation.setCaption(caption);
-        try {
-            execute(animation);
-            log.debug("GIF sent successfully to chatId={}", chatId);
-        } catch (TelegramApiException e) {
-            log.error("Failed to send GIF to chatId={}", chatId, e);
-            throw new TelegramMessageSendException(
-                    "Failed to send GIF to chatId=" + chatId, e
-            );
-        }
+
+        String caption = messageTemplates.get(fileName);
+        String fileId = animationFileIds.get(gifUrl);
+        return send(chatId, "send GIF", () -> {
+            SendAnimation animation = new SendAnimation();
+            animation.setChatId(chatId.toString());
+            animation.setParseMode("HTML");
+            animation.setAnimation(new InputFile(fileId != null ? fileId : gifUrl));
+            animation.setCaption(caption);
+            return executeAsync(animation);
+        }).whenComplete((message, error) -> {
+            if (error != null) {
+                if (fileId != null) {
+                    animationFileIds.remove(gifUrl, fileId);
+                }
+            } else if (fileId == null && message.getAnimation() != null) {
+                animationFileIds.put(gifUrl, message.getAnimation().getFileId());
+                log.debug("Cached file_id for GIF {}", gifUrl);
+            }
+        });
+    }
+
+    /**
+     * Queues a Bot API call. A failure is logged here and completes the future with
+     * {@link TelegramMessageSendException}.
+     */
+    private <T> CompletableFuture<T> send(long chatId, String action, TelegramSendQueue.ApiCall<T> call) {
+        return sendQueue.submit(chatId, call).handle((result, error) -> {
+            if (error == null) {
+                log.debug("Completed {} to chatId={}", action, chatId);
+                return result;
+            }
+            log.error("Failed to {} to chatId={}", action, chatId, error);
+            throw new TelegramMessageSendException("Failed to " + action + " to chatId=" + chatId, error);
+        });
     }
 
     @Override
@@ -101,6 +198,7 @@ public class TelegramBot extends TelegramLongPollingBot {
     public String getBotToken() {
         return token;
     }
-}
-
 
+    private record ReceivedUpdate(String outcome, BotApiMethod<?> reply) {
+    }
+}
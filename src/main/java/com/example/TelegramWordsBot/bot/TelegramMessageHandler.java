@@ -1,37 +1,82 @@
 package com.example.TelegramWordsBot.bot;
 
+import com.example.TelegramWordsBot.dto.JobStatus;
 import com.example.TelegramWordsBot.dto.UserState;
+import com.example.TelegramWordsBot.dto.WordData;
 import com.example.TelegramWordsBot.exception.ChatGPTProcessingException;
 import com.example.TelegramWordsBot.exception.GoogleSheetsException;
-import com.example.TelegramWordsBot.exception.TelegramMessageSendException;
 import com.example.TelegramWordsBot.model.User;
-import com.example.TelegramWordsBot.service.ChatGPTService;
+import com.example.TelegramWordsBot.model.UserWord;
+import com.example.TelegramWordsBot.model.WordJob;
 import com.example.TelegramWordsBot.service.GoogleSheetsService;
+import com.example.TelegramWordsBot.service.QuotaService;
+import com.example.TelegramWordsBot.service.ReviewService;
+import com.example.TelegramWordsBot.service.ShardLeaseService;
+import com.example.TelegramWordsBot.service.SheetsWriteQueue;
+import com.example.TelegramWordsBot.service.TranslationService;
 import com.example.TelegramWordsBot.service.UserService;
+import com.example.TelegramWordsBot.service.WordJobService;
+import com.example.TelegramWordsBot.util.UserMessageProcessor;
+import com.example.TelegramWordsBot.util.WordNormalizer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class TelegramMessageHandler {
 
+    private static final int MISSING_PREVIEW = 10;
+
     @Value(value = "${media.gif.start}")
     private String accessRightsGif;
     @Value(value = "${media.gif.sheet-id}")
     private String sheetIdGif;
+    @Value("${chatgpt.streaming.enabled:false}")
+    private boolean streamingEnabled;
+    @Value("${chatgpt.streaming.flush-size:10}")
+    private int streamingFlushSize;
+    @Value("${chatgpt.streaming.flush-interval:2s}")
+    private Duration streamingFlushInterval;
+    @Value("${google.sheets.skip-existing:false}")
+    private boolean skipExistingWords;
+    @Value("${google.sheets.write-queue.wait-timeout:2m}")
+    private Duration sheetsWriteTimeout;
 
     private final UserService userService;
     private final GoogleSheetsService googleSheetsService;
-    private final ChatGPTService chatGPTService;
+    private final TranslationService translationService;
+    private final SheetsWriteQueue sheetsWriteQueue;
+    private final WordJobService wordJobService;
+    private final QuotaService quotaService;
+    private final ReviewService reviewService;
+    private final SheetSyncRunner sheetSyncRunner;
+    private final UserMessageProcessor messageProcessor;
+    private final ShardLeaseService shardLeaseService;
 
     public void handle(Update update, TelegramBot bot) {
         String text = update.getMessage().getText();
         Long chatId = update.getMessage().getChatId();
 
+        if (!shardLeaseService.isLocal(chatId)) {
+            // The shard's lease ran out while the update waited; its new owner may be handling the chat already
+            log.warn("Dropping update for chatId={}, its shard is no longer local", chatId);
+            bot.sendMessage(chatId, "⚠️ Не вдалося обробити ваше повідомлення. Надішліть його ще раз, будь ласка.");
+            return;
+        }
+
         User user = userService.findOrCreate(chatId);
 
         // ---------- AUTH FLOW ----------
@@ -70,6 +115,28 @@ public class TelegramMessageHandler {
             return;
         }
 
+        // ---------- REVIEW ----------
+        if (user.getUserState() == UserState.REVIEWING) {
+            if (!text.startsWith("/")) {
+                answerReview(bot, chatId, text);
+                return;
+            }
+            finishReview(bot, chatId, reviewService.stop(chatId));
+            if (text.equals("/stop")) {
+                return;
+            }
+        }
+
+        if (text.equals("/review")) {
+            startReview(bot, chatId);
+            return;
+        }
+
+        if (text.equals("/sync")) {
+            startSync(bot, user);
+            return;
+        }
+
         // ---------- SHEET ID ----------
         if (text.equals("/sheet_id")) {
             log.debug("User {} requested sheet ID setup", chatId);
@@ -112,27 +179,210 @@ public class TelegramMessageHandler {
             bot.sendMessage(chatId, "⚠️ Ви не вказали Sheet ID.");
             return;
         }
-        
+
+        String wordsText = skipExistingWords ? withoutExistingWords(user, messageText) : messageText;
+        if (wordsText.isEmpty()) {
+            bot.sendMessage(chatId, "ℹ️ Усі ці слова вже є у вашій таблиці.");
+            return;
+        }
+        QuotaService.Charge charge = chargeQuota(bot, chatId, wordsText);
+        if (charge == null) {
+            return;
+        }
+
+        WordJob job = wordJobService.create(user, wordsText);
+        CompletableFuture<Message> progress = bot.sendMessage(chatId, "Обробляю слова...");
+        runJob(bot, job, progress, charge);
+    }
+
+    /**
+     * Charges the words neither the offline providers nor the translation cache can
+     * answer to the user's model budget, or tells the user why the list was
+     * refused. Refused lists never reach the model.
+     *
+     * @return the charge, or {@code null} if the list was refused
+     */
+    private QuotaService.Charge chargeQuota(TelegramBot bot, Long chatId, String wordsText) {
+        QuotaService.Charge charge = quotaService.tryAcquire(chatId,
+                translationService.modelBound(WordNormalizer.split(wordsText)));
+        QuotaService.Decision decision = charge.decision();
+        switch (decision) {
+            case ALLOWED -> {
+                return charge;
+            }
+            case TOO_LARGE -> bot.sendMessage(chatId, "⚠️ Забагато слів в одному повідомленні. Надішліть не більше "
+                    + quotaService.getMaxWordsPerRequest() + " слів за раз.");
+            case MINUTE_LIMIT -> bot.sendMessage(chatId, "⏳ Забагато слів за хвилину. Спробуйте ще раз через "
+                    + quotaService.secondsToNextMinute() + " с.");
+            case DAILY_LIMIT -> bot.sendMessage(chatId, "⛔ Денний ліміт слів вичерпано. Спробуйте завтра.");
+        }
+        log.info("Word list from user {} refused: {}", chatId, decision);
+        return null;
+    }
+
+    /**
+     * Drops words already present in the user's sheet, so they are neither sent to
+     * the model nor written twice. If the sheet cannot be read, nothing is dropped.
+     */
+    private String withoutExistingWords(User user, String messageText) {
+        Set<String> existing;
+        try {
+            existing = googleSheetsService.existingWords(user.getSheetId());
+        } catch (GoogleSheetsException e) {
+            log.warn("Could not read existing words for user {}, keeping all words", user.getChatId(), e);
+            return messageText;
+        }
+
+        List<String> words = WordNormalizer.split(messageText).stream()
+                .filter(word -> !existing.contains(WordNormalizer.normalize(word)))
+                .toList();
+        log.debug("Skipping words already in the sheet of user {}", user.getChatId());
+        return String.join("\n", words);
+    }
+
+    /**
+     * Imports the user's existing sheet into the review cards in the background.
+     */
+    private void startSync(TelegramBot bot, User user) {
+        Long chatId = user.getChatId();
+        if (user.getSheetId() == null || user.getSheetId().isEmpty()) {
+            bot.sendMessage(chatId, "⚠️ Ви не вказали Sheet ID.");
+            return;
+        }
+        if (!sheetSyncRunner.start(chatId, user.getSheetId(), bot)) {
+            bot.sendMessage(chatId, "⏳ Синхронізація таблиці вже триває.");
+        }
+    }
+
+    private void startReview(TelegramBot bot, Long chatId) {
+        UserWord card = reviewService.start(chatId);
+        if (card == null) {
+            userService.setState(chatId, UserState.IDLE);
+            bot.sendMessage(chatId, "🎉 Немає слів для повторення. Надішліть нові слова або поверніться пізніше.");
+            return;
+        }
+
+        log.info("User {} started a review", chatId);
+        userService.setState(chatId, UserState.REVIEWING);
+        bot.sendMessage(chatId, reviewPrompt(card));
+    }
+
+    private void answerReview(TelegramBot bot, Long chatId, String text) {
+        ReviewService.Answer answer = reviewService.answer(chatId, text);
+        if (answer == null) {
+            // Sessions live in memory; after a restart start over with what is due
+            startReview(bot, chatId);
+            return;
+        }
+
+        UserWord card = answer.card();
+        String feedback = answer.correct()
+                ? "✅ Правильно! Наступне повторення через " + card.getIntervalDays() + " дн."
+                : "❌ Ні. " + card.getOriginal()
+                + (card.getTranscription() == null || card.getTranscription().isBlank() ? "" : " " + card.getTranscription())
+                + " — " + card.getTranslation();
+        if (answer.next() != null) {
+            bot.sendMessage(chatId, feedback + "\n\n" + reviewPrompt(answer.next()));
+            return;
+        }
+        bot.sendMessage(chatId, feedback);
+        finishReview(bot, chatId, answer.summary());
+    }
+
+    private void finishReview(TelegramBot bot, Long chatId, ReviewService.Summary summary) {
+        userService.setState(chatId, UserState.IDLE);
+        log.info("User {} finished a review: {} of {} correct", chatId, summary.correct(), summary.answered());
+        bot.sendMessage(chatId, "🏁 Повторення завершено: правильних відповідей "
+                + summary.correct() + " з " + summary.answered() + ".");
+    }
+
+    private static String reviewPrompt(UserWord card) {
+        return "🔁 Як перекладається «" + card.getOriginal() + "»?\n(/stop — завершити)";
+    }
+
+    /**
+     * Continues a job taken over after its previous owner stopped mid-batch.
+     */
+    public void resumeJob(WordJob job, TelegramBot bot) {
+        if (!shardLeaseService.isLocal(job.getChatId())) {
+            log.info("Leaving job {} to the new owner of chatId={}", job.getId(), job.getChatId());
+            wordJobService.release(job);
+            return;
+        }
+        log.info("Resuming job {} for user {} at stage {}", job.getId(), job.getChatId(), job.getStatus());
+        CompletableFuture<Message> progress = bot.sendMessage(job.getChatId(), "Продовжую обробку слів після перезапуску...");
+        // The charge stays with the run that accepted the list
+        runJob(bot, job, progress, null);
+    }
+
+    /**
+     * @param charge what accepting the list cost the user, refunded if the job
+     *               fails; {@code null} for resumed jobs
+     */
+    private void runJob(TelegramBot bot, WordJob job, CompletableFuture<Message> progress, QuotaService.Charge charge) {
+        Long chatId = job.getChatId();
+
+        wordJobService.started(job);
         try {
-            bot.sendMessage(chatId, "Обробляю слова...");
+            if (job.getStatus() == JobStatus.TRANSLATED) {
+                var rows = wordJobService.unwritten(job, wordJobService.translatedRows(job));
+                saveWords(job, rows);
+                wordJobService.markWritten(job, rows);
+            } else if (streamingEnabled) {
+                streamAndSaveWords(bot, job, progress);
+            } else {
+                var wordsData = wordJobService.unwritten(job, translationService.processWords(job.getWordsText()));
+                log.debug("Processed {} words for user {}", wordsData.size(), chatId);
 
-            var wordsData = chatGPTService.processWords(messageText);
-            log.debug("Processed {} words for user {}", wordsData.size(), chatId);
+                wordJobService.markTranslated(job, wordsData);
+                saveWords(job, wordsData);
+                wordJobService.markWritten(job, wordsData);
+            }
 
-            googleSheetsService.writeWords(wordsData, user);
+            List<String> missing = wordJobService.unansweredWords(job);
+            if (!missing.isEmpty()) {
+                // Chunks that failed every attempt; the next recovery pass asks for just these
+                log.warn("Job {} for user {} left {} words untranslated", job.getId(), chatId, missing.size());
+                wordJobService.markIncomplete(job, missing.size());
+                bot.sendMessage(chatId, "⚠️ Записано в Google Sheets, але не вдалося перекласти слів: " + missing.size()
+                        + " (" + preview(missing) + "). Спробую ще раз автоматично за хвилину.");
+                return;
+            }
+            wordJobService.markDone(job);
             bot.sendMessage(chatId, "✅ Дані успішно записані в Google Sheets!");
 
-        } catch (GoogleSheetsException e) {
+        } catch (Exception e) {
+            if (messageProcessor.isDraining()) {
+                // Cut off by shutdown; the job keeps its lease and is checkpointed
+                log.info("Job {} for user {} interrupted by shutdown at stage {}", job.getId(), chatId, job.getStatus());
+                return;
+            }
+            wordJobService.markFailed(job, e);
+            if (charge != null) {
+                quotaService.refund(chatId, charge);
+            }
+            reportFailure(bot, chatId, e);
+        } finally {
+            wordJobService.exited(job);
+        }
+    }
+
+    private static String preview(List<String> words) {
+        int shown = Math.min(words.size(), MISSING_PREVIEW);
+        String list = String.join(", ", words.subList(0, shown));
+        return shown < words.size() ? list + ", …" : list;
+    }
+
+    private void reportFailure(TelegramBot bot, Long chatId, Exception e) {
+        if (e instanceof GoogleSheetsException) {
             log.error("Google Sheets error while processing words for user {}", chatId, e);
             bot.sendMessage(chatId, "⚠️ Помилка при записі в Google Sheets. Спробуйте ще раз або перевірте Sheet ID.");
-            
-        } catch (ChatGPTProcessingException e) {
+
+        } else if (e instanceof ChatGPTProcessingException) {
             log.error("ChatGPT processing error for user {}", chatId, e);
             bot.sendMessage(chatId, "⚠️ Помилка при обробці слів через ChatGPT. Перевірте формат списку слів і спробуйте ще раз.");
-            
-        } catch (TelegramMessageSendException e) {
-            log.error("Failed to send message to user {}", chatId, e);
-        } catch (Exception e) {
+
+        } else {
             log.error("Unexpected error while processing words for user {}", chatId, e);
             try {
                 bot.sendMessage(chatId, "⚠️ Сталася неочікувана помилка. Спробуйте ще раз.");
@@ -141,5 +391,61 @@ public class TelegramMessageHandler {
             }
         }
     }
-}
 
+    private void streamAndSaveWords(TelegramBot bot, WordJob job, CompletableFuture<Message> progress) {
+        Long chatId = job.getChatId();
+        int written = 0;
+        Message progressMessage = null;
+
+        Iterable<List<WordData>> batches = translationService.streamWords(job.getWordsText())
+                .bufferTimeout(streamingFlushSize, streamingFlushInterval)
+                .toIterable();
+
+        for (List<WordData> batch : batches) {
+            List<WordData> rows = wordJobService.unwritten(job, batch);
+            saveWords(job, rows);
+            wordJobService.markWritten(job, rows);
+            written += rows.size();
+            log.debug("Streamed {} words so far for user {}", written, chatId);
+
+            if (progressMessage == null) {
+                // Sent long before the first batch is written; null if sending failed
+                progressMessage = progress.exceptionally(e -> null).join();
+            }
+            if (progressMessage != null) {
+                bot.editMessage(chatId, progressMessage.getMessageId(), "Обробляю слова... Записано: " + written);
+            }
+        }
+    }
+
+    /**
+     * Hands the rows to the shared write queue and waits until they land in the
+     * sheet, then adds them to the user's review cards.
+     */
+    private void saveWords(WordJob job, List<WordData> words) {
+        CompletableFuture<Void> write = sheetsWriteQueue.enqueue(job.getSheetId(), words);
+        try {
+            write.get(sheetsWriteTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new GoogleSheetsException("Failed to write words to Google Sheets", e.getCause());
+        } catch (TimeoutException e) {
+            // Drops the rows unless their append already started
+            write.cancel(false);
+            throw new GoogleSheetsException("Timed out after " + sheetsWriteTimeout + " waiting for the sheet write", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.cancel(false);
+            throw new GoogleSheetsException("Interrupted while waiting for the sheet write", e);
+        }
+
+        // The sheet is the user's copy; a failed card write must not fail the job
+        try {
+            reviewService.saveWords(job.getChatId(), words);
+        } catch (RuntimeException e) {
+            log.warn("Could not save review cards for user {}", job.getChatId(), e);
+        }
+    }
+}
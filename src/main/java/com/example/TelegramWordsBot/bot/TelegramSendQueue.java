@@ -0,0 +1,270 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.util.TokenBucket;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbound queue for Bot API calls. Calls wait here instead of blocking worker
+ * threads, and leave under two token buckets: a global one for the bot-wide limit
+ * and one per chat. A chat has at most one call in flight, so its messages arrive
+ * in the order they were queued. A 429 response pauses the chat for the
+ * {@code retry_after} Telegram asks for, then the same call is sent again.
+ * <p>
+ * All scheduling decisions are made on a single dispatcher thread. The calls
+ * themselves run on the sender's own pool.
+ */
+@Slf4j
+@Component
+public class TelegramSendQueue {
+
+    private final TokenBucket globalLimit;
+    private final int perChatLimit;
+    private final Duration perChatPeriod;
+    private final int maxAttempts;
+    private final MeterRegistry meterRegistry;
+
+    private final ScheduledExecutorService dispatcher =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("telegram-send-"));
+    private final Map<Long, ChatQueue> chats = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedCalls = new AtomicInteger();
+    private final AtomicInteger inFlightCalls = new AtomicInteger();
+
+    // Only touched on the dispatcher thread
+    private ScheduledFuture<?> wakeup;
+
+    public TelegramSendQueue(
+            @Value("${telegram.send.global-per-second:30}") int globalPerSecond,
+            @Value("${telegram.send.per-chat-limit:1}") int perChatLimit,
+            @Value("${telegram.send.per-chat-period:1s}") Duration perChatPeriod,
+            @Value("${telegram.send.max-attempts:3}") int maxAttempts,
+            MeterRegistry meterRegistry
+    ) {
+        this.globalLimit = new TokenBucket(globalPerSecond, Duration.ofSeconds(1));
+        this.perChatLimit = perChatLimit;
+        this.perChatPeriod = perChatPeriod;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("telegram.send.queued", queuedCalls, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("telegram.send.chats", chats, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Queues a call for a chat. The call is started once the rate limits allow it
+     * and again for each retry, so it must build a fresh request every time.
+     */
+    public <T> CompletableFuture<T> submit(long chatId, ApiCall<T> call) {
+        OutgoingCall<T> outgoing = new OutgoingCall<>(call, new CompletableFuture<>());
+
+        queuedCalls.incrementAndGet();
+        chats.compute(chatId, (id, chat) -> {
+            ChatQueue target = chat != null ? chat : new ChatQueue(new TokenBucket(perChatLimit, perChatPeriod));
+            target.add(outgoing);
+            return target;
+        });
+        dispatcher.execute(this::drain);
+        return outgoing.result();
+    }
+
+    public int getQueuedCalls() {
+        return queuedCalls.get();
+    }
+
+    /**
+     * Waits until every queued call has been answered or failed, at most the timeout.
+     *
+     * @return {@code true} if nothing is left to send
+     */
+    public boolean awaitEmpty(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        return isEmpty();
+    }
+
+    private boolean isEmpty() {
+        return queuedCalls.get() == 0 && inFlightCalls.get() == 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    private void drain() {
+        long now = System.nanoTime();
+        long waitNanos = Long.MAX_VALUE;
+
+        for (Map.Entry<Long, ChatQueue> entry : chats.entrySet()) {
+            Long chatId = entry.getKey();
+            ChatQueue chat = entry.getValue();
+
+            if (chat.inFlight) {
+                continue;
+            }
+            if (chat.isEmpty()) {
+                // A fresh bucket is only safe once the chat's period has passed
+                if (now - chat.lastSentAt >= perChatPeriod.toNanos()) {
+                    chats.computeIfPresent(chatId, (id, current) -> current.isEmpty() && !current.inFlight ? null : current);
+                }
+                continue;
+            }
+            if (now < chat.pausedUntil) {
+                waitNanos = Math.min(waitNanos, chat.pausedUntil - now);
+                continue;
+            }
+            Duration chatWait = chat.limit.timeToNextToken();
+            if (!chatWait.isZero()) {
+                waitNanos = Math.min(waitNanos, chatWait.toNanos());
+                continue;
+            }
+            if (!globalLimit.tryAcquire()) {
+                waitNanos = Math.min(waitNanos, globalLimit.timeToNextToken().toNanos());
+                break;
+            }
+
+            chat.limit.tryAcquire();
+            dispatch(chatId, chat);
+        }
+
+        if (waitNanos != Long.MAX_VALUE) {
+            scheduleDrain(waitNanos);
+        }
+    }
+
+    private void dispatch(Long chatId, ChatQueue chat) {
+        OutgoingCall<?> outgoing = chat.poll();
+        queuedCalls.decrementAndGet();
+        inFlightCalls.incrementAndGet();
+        chat.inFlight = true;
+        chat.lastSentAt = System.nanoTime();
+
+        CompletableFuture<?> response;
+        try {
+            response = outgoing.call().execute();
+        } catch (TelegramApiException | RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((result, error) ->
+                dispatcher.execute(() -> complete(chatId, chat, outgoing, result, error)));
+    }
+
+    private void complete(Long chatId, ChatQueue chat, OutgoingCall<?> outgoing, Object result, Throwable error) {
+        chat.inFlight = false;
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+
+        if (cause instanceof TelegramApiRequestException apiError
+                && Integer.valueOf(429).equals(apiError.getErrorCode())
+                && ++outgoing.attempts < maxAttempts) {
+            int retryAfter = apiError.getParameters() != null && apiError.getParameters().getRetryAfter() != null
+                    ? apiError.getParameters().getRetryAfter()
+                    : 1;
+            log.warn("Telegram throttled chatId={}, retrying in {}s (attempt {}/{})",
+                    chatId, retryAfter, outgoing.attempts, maxAttempts);
+            meterRegistry.counter("telegram.send.throttled").increment();
+            chat.pausedUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(retryAfter);
+            chat.retry(outgoing);
+            queuedCalls.incrementAndGet();
+        } else {
+            meterRegistry.counter("telegram.send.calls", "outcome", cause == null ? "success" : "error").increment();
+            outgoing.finish(result, cause);
+        }
+        // After a retry is queued again, so awaitEmpty never sees the call missing
+        inFlightCalls.decrementAndGet();
+        drain();
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        if (wakeup != null && !wakeup.isDone() && wakeup.getDelay(TimeUnit.NANOSECONDS) <= delayNanos) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+        wakeup = dispatcher.schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @FunctionalInterface
+    public interface ApiCall<T> {
+        CompletableFuture<T> execute() throws TelegramApiException;
+    }
+
+    private static final class OutgoingCall<T> {
+        private final ApiCall<T> call;
+        private final CompletableFuture<T> result;
+        private int attempts;
+
+        private OutgoingCall(ApiCall<T> call, CompletableFuture<T> result) {
+            this.call = call;
+            this.result = result;
+        }
+
+        ApiCall<T> call() {
+            return call;
+        }
+
+        CompletableFuture<T> result() {
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        void finish(Object value, Throwable error) {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete((T) value);
+            }
+        }
+    }
+
+    private static final class ChatQueue {
+        private final TokenBucket limit;
+        private final Deque<OutgoingCall<?>> calls = new ArrayDeque<>();
+        // Only touched on the dispatcher thread
+        private boolean inFlight;
+        private long lastSentAt;
+        private long pausedUntil;
+
+        private ChatQueue(TokenBucket limit) {
+            this.limit = limit;
+        }
+
+        synchronized void add(OutgoingCall<?> call) {
+            calls.add(call);
+        }
+
+        synchronized boolean isEmpty() {
+            return calls.isEmpty();
+        }
+
+        synchronized OutgoingCall<?> poll() {
+            return calls.poll();
+        }
+
+        synchronized void retry(OutgoingCall<?> call) {
+            calls.addFirst(call);
+        }
+    }
+}
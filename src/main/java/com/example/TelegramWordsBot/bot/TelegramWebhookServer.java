@@ -0,0 +1,290 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.exception.ShardUnavailableException;
+import com.example.TelegramWordsBot.service.ShardLeaseService;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Receives updates over HTTP when {@code telegram.bot.mode} is {@code webhook}.
+ * Runs on the JDK's built-in HTTP server, so the application stays non-web. Each
+ * update goes through {@link TelegramBot#handleUpdate}, and an immediate reply is
+ * written back as the response body, which Telegram executes as an API call.
+ * Instances share nothing, so several of them can sit behind one load balancer.
+ * <p>
+ * In clustered mode an update for a chat owned by another node is forwarded to
+ * that node's {@code cluster.forward-path}, and its reply is passed back to
+ * Telegram. Forwarded updates are never forwarded again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "webhook")
+public class TelegramWebhookServer {
+
+    private static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final String CLUSTER_TOKEN_HEADER = "X-Cluster-Token";
+
+    private final TelegramBot telegramBot;
+    private final ObjectMapper objectMapper;
+    private final int port;
+    private final String path;
+    private final String publicUrl;
+    private final String secretToken;
+    private final ExecutorService executor;
+    private final ShardLeaseService shardLeaseService;
+    private final String forwardPath;
+    private final String clusterToken;
+    private final Duration forwardTimeout;
+    private final HttpClient forwardClient;
+
+    private HttpServer server;
+    private boolean stopped;
+
+    public TelegramWebhookServer(
+            TelegramBot telegramBot,
+            ObjectMapper objectMapper,
+            @Value("${telegram.webhook.port:${server.port:8080}}") int port,
+            @Value("${telegram.webhook.path:/telegram/webhook}") String path,
+            @Value("${telegram.webhook.url:}") String publicUrl,
+            @Value("${telegram.webhook.secret-token:}") String secretToken,
+            @Value("${telegram.webhook.threads:4}") int threads,
+            ShardLeaseService shardLeaseService,
+            @Value("${cluster.forward-path:/cluster/update}") String forwardPath,
+            @Value("${cluster.token:}") String clusterToken,
+            @Value("${cluster.forward-timeout:10s}") Duration forwardTimeout
+    ) {
+        this.telegramBot = telegramBot;
+        // Telegram rejects explicit nulls in methods returned from a webhook
+        this.objectMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.port = port;
+        this.path = path;
+        this.publicUrl = publicUrl;
+        this.secretToken = secretToken;
+        this.executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("webhook-"));
+        this.shardLeaseService = shardLeaseService;
+        this.forwardPath = forwardPath;
+        this.clusterToken = clusterToken;
+        this.forwardTimeout = forwardTimeout;
+        this.forwardClient = HttpClient.newBuilder()
+                .connectTimeout(forwardTimeout)
+                .build();
+    }
+
+    @PostConstruct
+    public void start() throws IOException, TelegramApiException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(path, this::handle);
+        if (shardLeaseService.isEnabled()) {
+            server.createContext(forwardPath, this::handleForwarded);
+        }
+        server.setExecutor(executor);
+        server.start();
+        log.info("Webhook receiver listening on port {} at {}", port, path);
+
+        registerWebhook();
+    }
+
+    /**
+     * Port the receiver is bound to, which differs from the configured one when that is 0.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops taking updates; called early by {@code GracefulShutdown} and again on
+     * destroy. The webhook stays registered, other instances keep receiving updates.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void registerWebhook() throws TelegramApiException {
+        if (publicUrl.isBlank()) {
+            log.info("telegram.webhook.url is not set, assuming the webhook is registered externally");
+            return;
+        }
+
+        SetWebhook setWebhook = new SetWebhook();
+        setWebhook.setUrl(publicUrl + path);
+        if (!secretToken.isBlank()) {
+            setWebhook.setSecretToken(secretToken);
+        }
+        telegramBot.execute(setWebhook);
+        log.info("Webhook registered at {}{}", publicUrl, path);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!secretToken.isBlank() && !secretToken.equals(exchange.getRequestHeaders().getFirst(SECRET_TOKEN_HEADER))) {
+                log.warn("Rejected webhook call from {} with a wrong secret token", exchange.getRemoteAddress());
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            Update update = readUpdate(exchange, body);
+            if (update == null) {
+                return;
+            }
+
+            Long chatId = chatIdOf(update);
+            String ownerUrl;
+            try {
+                ownerUrl = chatId != null ? shardLeaseService.ownerUrl(chatId) : null;
+            } catch (ShardUnavailableException e) {
+                // Telegram redelivers the update, by then the shard has an owner
+                log.debug("Deferring update {}: {}", update.getUpdateId(), e.getMessage());
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            if (ownerUrl != null) {
+                forward(exchange, update, ownerUrl, body);
+            } else {
+                respond(exchange, update);
+            }
+        }
+    }
+
+    /**
+     * Updates forwarded by another node that believed this one owns the chat. If
+     * the shard moved in the meantime, 409 tells the sender to fail the delivery,
+     * so Telegram retries it.
+     */
+    private void handleForwarded(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!clusterToken.isBlank() && !clusterToken.equals(exchange.getRequestHeaders().getFirst(CLUSTER_TOKEN_HEADER))) {
+                log.warn("Rejected forwarded update from {} with a wrong cluster token", exchange.getRemoteAddress());
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            Update update = readUpdate(exchange, exchange.getRequestBody().readAllBytes());
+            if (update == null) {
+                return;
+            }
+            Long chatId = chatIdOf(update);
+            if (chatId != null && !shardLeaseService.isLocal(chatId)) {
+                log.debug("Update {} forwarded here, but chat {} is no longer local", update.getUpdateId(), chatId);
+                exchange.sendResponseHeaders(409, -1);
+                return;
+            }
+            respond(exchange, update);
+        }
+    }
+
+    private Update readUpdate(HttpExchange exchange, byte[] body) throws IOException {
+        try {
+            return objectMapper.readValue(body, Update.class);
+        } catch (IOException e) {
+            log.warn("Malformed update received on webhook", e);
+            exchange.sendResponseHeaders(400, -1);
+            return null;
+        }
+    }
+
+    private void respond(HttpExchange exchange, Update update) throws IOException {
+        BotApiMethod<?> reply = null;
+        try {
+            reply = telegramBot.handleUpdate(update);
+        } catch (RuntimeException e) {
+            // Anything but 2xx makes Telegram redeliver the update, so the error stops here
+            log.error("Error handling update {}", update.getUpdateId(), e);
+        }
+
+        if (reply == null) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        writeJson(exchange, objectMapper.writeValueAsBytes(reply));
+    }
+
+    /**
+     * Passes the update to the chat's owner and relays its answer. A failed
+     * forward fails the delivery, so Telegram sends the update again.
+     */
+    private void forward(HttpExchange exchange, Update update, String ownerUrl, byte[] body) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(ownerUrl + forwardPath))
+                .timeout(forwardTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (!clusterToken.isBlank()) {
+            request.header(CLUSTER_TOKEN_HEADER, clusterToken);
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = forwardClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            log.warn("Could not forward update {} to {}", update.getUpdateId(), ownerUrl, e);
+            exchange.sendResponseHeaders(502, -1);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+
+        if (response.statusCode() != 200) {
+            log.debug("Forwarding update {} to {} returned HTTP {}", update.getUpdateId(), ownerUrl, response.statusCode());
+            exchange.sendResponseHeaders(502, -1);
+            return;
+        }
+        if (response.body().length == 0) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        writeJson(exchange, response.body());
+    }
+
+    private static void writeJson(HttpExchange exchange, byte[] response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static Long chatIdOf(Update update) {
+        return update.hasMessage() ? update.getMessage().getChatId() : null;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.model.WordJob;
+import com.example.TelegramWordsBot.service.ShardLeaseService;
+import com.example.TelegramWordsBot.service.WordJobService;
+import com.example.TelegramWordsBot.util.UserMessageProcessor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically takes over word jobs left unfinished by a stopped or crashed instance
+ * and runs them through the chat's serial queue, like a new message. Only jobs of
+ * chats in shards this node holds are claimed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WordJobRecovery {
+
+    private final WordJobService wordJobService;
+    private final UserMessageProcessor messageProcessor;
+    private final TelegramMessageHandler messageHandler;
+    private final TelegramBot bot;
+    private final ShardLeaseService shardLeaseService;
+
+    @Value("${jobs.recovery-batch:20}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${jobs.recovery-interval:30000}", initialDelayString = "${jobs.recovery-interval:30000}")
+    public void resumeExpired() {
+        List<Integer> shards = shardLeaseService.localShards();
+        if (shards.isEmpty()) {
+            return;
+        }
+        WordJobService.Claims claims = wordJobService.claimExpired(shardLeaseService.shardCount(), shards, batchSize);
+        for (WordJob job : claims.abandoned()) {
+            boolean partlyWritten = job.getWrittenWords() != null && !job.getWrittenWords().isEmpty();
+            bot.sendMessage(job.getChatId(), partlyWritten
+                    ? "⚠️ Частину слів так і не вдалося перекласти після кількох спроб. Надішліть їх ще раз."
+                    : "⚠️ Не вдалося обробити ваш список слів після кількох спроб. Надішліть його ще раз.");
+        }
+        for (WordJob job : claims.claimed()) {
+            if (!shardLeaseService.isLocal(job.getChatId())) {
+                // The shard moved since the claim; its new owner picks the job up
+                wordJobService.release(job);
+                continue;
+            }
+            boolean accepted = messageProcessor.submit(job.getChatId(), () -> messageHandler.resumeJob(job, bot));
+            if (!accepted) {
+                log.debug("Chat {} is busy, leaving job {} for a later pass", job.getChatId(), job.getId());
+                wordJobService.release(job);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.TelegramWordsBot.config;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbound HTTP clients. Google Sheets calls go through a pooled Apache client and
+ * OpenAI calls through one shared JDK {@link HttpClient}, which negotiates HTTP/2.
+ * Both keep connections alive between calls, so a call does not pay for a new TLS
+ * handshake, and both have explicit timeouts, so a slow upstream fails the call
+ * instead of holding the worker.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager sheetsConnectionManager(
+            @Value("${http.sheets.max-connections:20}") int maxConnections,
+            MeterRegistry meterRegistry
+    ) {
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(maxConnections);
+        // Nearly every call goes to the same host
+        pool.setDefaultMaxPerRoute(maxConnections);
+        pool.setValidateAfterInactivity(2000);
+
+        Gauge.builder("http.client.pool.connections", pool, p -> p.getTotalStats().getLeased())
+                .tags("client", "sheets", "state", "leased").register(meterRegistry);
+        Gauge.builder("http.client.pool.connections", pool, p -> p.getTotalStats().getAvailable())
+                .tags("client", "sheets", "state", "idle").register(meterRegistry);
+        Gauge.builder("http.client.pool.pending", pool, p -> p.getTotalStats().getPending())
+                .tag("client", "sheets").register(meterRegistry);
+        return pool;
+    }
+
+    /**
+     * Connect and read timeouts are set per request by {@code GoogleSheetsService},
+     * since the Google client overrides the Apache defaults on every call.
+     */
+    @Bean
+    public HttpTransport sheetsHttpTransport(
+            PoolingHttpClientConnectionManager sheetsConnectionManager,
+            @Value("${http.sheets.idle-timeout:60s}") Duration idleTimeout
+    ) {
+        return new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+                .setConnectionManager(sheetsConnectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    @Bean
+    public HttpClient openAiHttpClient(
+            @Value("${http.openai.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${http.openai.http2:true}") boolean http2
+    ) {
+        return HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    /**
+     * Used by Spring AI for blocking chat calls.
+     */
+    @Bean
+    public RestClientCustomizer openAiRestClientCustomizer(
+            HttpClient openAiHttpClient,
+            @Value("${http.openai.read-timeout:60s}") Duration readTimeout,
+            MeterRegistry meterRegistry
+    ) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(openAiHttpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        ClientHttpRequestInterceptor metrics = requestMetrics(meterRegistry);
+        return builder -> builder.requestFactory(requestFactory).requestInterceptor(metrics);
+    }
+
+    /**
+     * Used by Spring AI for streamed chat calls. The read timeout is the longest
+     * gap allowed between two parts of the stream.
+     */
+    @Bean
+    public WebClientCustomizer openAiWebClientCustomizer(
+            HttpClient openAiHttpClient,
+            @Value("${http.openai.read-timeout:60s}") Duration readTimeout
+    ) {
+        JdkClientHttpConnector connector = new JdkClientHttpConnector(openAiHttpClient);
+        connector.setReadTimeout(readTimeout);
+        return builder -> builder.clientConnector(connector);
+    }
+
+    private static ClientHttpRequestInterceptor requestMetrics(MeterRegistry meterRegistry) {
+        AtomicInteger inFlight = new AtomicInteger();
+        Gauge.builder("http.client.in-flight", inFlight, AtomicInteger::get)
+                .tag("client", "openai").register(meterRegistry);
+
+        return (request, body, execution) -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String status = "error";
+            inFlight.incrementAndGet();
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                status = String.valueOf(response.getStatusCode().value());
+                return response;
+            } finally {
+                inFlight.decrementAndGet();
+                sample.stop(meterRegistry.timer("http.client.requests", "client", "openai", "status", status));
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.TelegramWordsBot.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * Keeps scheduled tasks running until the scheduler's own lifecycle phase
+     * instead of stopping them as soon as the context starts closing. Jobs drained
+     * on shutdown still need the Sheets write queue flushes and lease heartbeats.
+     */
+    @Bean
+    public ThreadPoolTaskSchedulerCustomizer drainFriendlyScheduler() {
+        return scheduler -> scheduler.setAcceptTasksAfterContextClose(true);
+    }
+}
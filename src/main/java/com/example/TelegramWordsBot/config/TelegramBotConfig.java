@@ -1,20 +1,25 @@
 package com.example.TelegramWordsBot.config;
 
 import com.example.TelegramWordsBot.bot.TelegramBot;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
 @Configuration
 public class TelegramBotConfig {
 
+    /**
+     * The running long-polling session; {@code GracefulShutdown} stops it before
+     * draining, so no update is taken that this instance could not finish.
+     */
     @Bean
-    public TelegramBotsApi telegramBotsApi(TelegramBot telegramBot) throws TelegramApiException {
+    @ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "polling", matchIfMissing = true)
+    public BotSession telegramBotSession(TelegramBot telegramBot) throws TelegramApiException {
         TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-        botsApi.registerBot(telegramBot);
-        return botsApi;
+        return botsApi.registerBot(telegramBot);
     }
 }
-
@@ -0,0 +1,4 @@
+package com.example.TelegramWordsBot.dto;
+
+public record DueCards(Long chatId, long count) {
+}
@@ -0,0 +1,8 @@
+package com.example.TelegramWordsBot.dto;
+
+public enum JobStatus {
+    PENDING,
+    TRANSLATED,
+    DONE,
+    FAILED
+}
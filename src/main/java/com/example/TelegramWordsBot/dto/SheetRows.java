@@ -0,0 +1,10 @@
+package com.example.TelegramWordsBot.dto;
+
+import java.util.List;
+
+/**
+ * One window of sheet rows. {@code rowsRead} counts blank rows up to the last
+ * filled one; {@code last} is set once the window reaches the end of the tab's grid.
+ */
+public record SheetRows(List<WordData> words, int rowsRead, boolean last) {
+}
@@ -0,0 +1,7 @@
+package com.example.TelegramWordsBot.dto;
+
+public enum SyncStatus {
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -3,5 +3,6 @@ package com.example.TelegramWordsBot.dto;
 public enum UserState {
     WAITING_FOR_SHEET_ID,
     WAITING_FOR_AUTH_KEY,
-    IDLE
+    IDLE,
+    REVIEWING
 }
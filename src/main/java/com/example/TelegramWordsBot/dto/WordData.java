@@ -13,5 +13,16 @@ public class WordData {
 
     @JsonProperty("transcription")
     private String transcription;
+
+    /**
+     * Copy of this translation under the spelling the user typed.
+     */
+    public WordData withOriginal(String original) {
+        WordData row = new WordData();
+        row.setOriginal(original);
+        row.setTranslation(translation);
+        row.setTranscription(transcription);
+        return row;
+    }
 }
 
@@ -0,0 +1,9 @@
+package com.example.TelegramWordsBot.dto;
+
+import java.util.List;
+
+/**
+ * Top-level object for structured output, which requires an object rather than an array.
+ */
+public record WordList(List<WordData> words) {
+}
@@ -0,0 +1,13 @@
+package com.example.TelegramWordsBot.dto;
+
+/**
+ * How the model is asked to return translations.
+ */
+public enum WordResponseFormat {
+    /** Free-form JSON array, as described in the prompt. */
+    JSON,
+    /** JSON object constrained by a JSON schema through the model's structured output. */
+    STRUCTURED,
+    /** One tab-separated line per word; about half the output tokens of JSON. */
+    TSV
+}
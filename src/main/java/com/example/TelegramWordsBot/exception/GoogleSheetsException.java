@@ -4,12 +4,35 @@ package com.example.TelegramWordsBot.exception;
  * Exception thrown when there is an error working with Google Sheets API
  */
 public class GoogleSheetsException extends RuntimeException {
+
+    private final int statusCode;
     
     public GoogleSheetsException(String message) {
         super(message);
+        this.statusCode = 0;
     }
     
     public GoogleSheetsException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = 0;
+    }
+
+    public GoogleSheetsException(String message, int statusCode, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * HTTP status returned by the API, or 0 if the request did not get a response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Whether the request was rejected because of quota or temporary unavailability
+     */
+    public boolean isRetryable() {
+        return statusCode == 429 || statusCode == 503;
     }
 }
@@ -0,0 +1,12 @@
+package com.example.TelegramWordsBot.exception;
+
+/**
+ * Thrown in clustered mode when no node can take a chat's shard right now,
+ * e.g. while it is being handed over. The update should be retried later.
+ */
+public class ShardUnavailableException extends RuntimeException {
+
+    public ShardUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.TelegramWordsBot.exception;
+
+/**
+ * Thrown when another instance took over a sheet sync while this one was still
+ * importing it. The new owner continues the sync, so this one just stops.
+ */
+public class SyncLeaseLostException extends RuntimeException {
+
+    public SyncLeaseLostException(String message) {
+        super(message);
+    }
+}
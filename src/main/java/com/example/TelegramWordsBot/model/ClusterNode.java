@@ -0,0 +1,28 @@
+package com.example.TelegramWordsBot.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A running node in clustered mode. Nodes count the live rows to work out their
+ * fair share of shards, including nodes that do not own any shard yet.
+ */
+@Entity
+@Table(name = "cluster_nodes")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterNode {
+    @Id
+    private String instanceId;
+    private String url;
+    private Instant heartbeatAt;
+}
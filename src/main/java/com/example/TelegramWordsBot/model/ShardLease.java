@@ -0,0 +1,31 @@
+package com.example.TelegramWordsBot.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Ownership of one shard of the chatId space in clustered mode. The owner handles
+ * every chat of the shard and renews the lease with each heartbeat; a lease that
+ * ran out can be taken by any node.
+ */
+@Entity
+@Table(name = "shard_leases")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardLease {
+    @Id
+    private Integer shard;
+    private String owner;
+    // Base URL updates for this shard are forwarded to
+    private String ownerUrl;
+    private Instant leasedUntil;
+}
@@ -0,0 +1,35 @@
+package com.example.TelegramWordsBot.model;
+
+import com.example.TelegramWordsBot.dto.SyncStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Progress of a user's {@code /sync}: {@code nextRow} is the first sheet row not
+ * imported yet. It is saved after every window, so an interrupted sync resumes
+ * there. Leased to one instance at a time, like {@link WordJob}.
+ */
+@Entity
+@Table(name = "sheet_syncs", indexes = @Index(name = "idx_sheet_syncs_status_lease", columnList = "status, lockedUntil"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class SheetSync {
+    @Id
+    private Long chatId;
+    private String sheetId;
+    @Enumerated(EnumType.STRING)
+    private SyncStatus status;
+    private int nextRow;
+    private long rowsImported;
+    private int attempts;
+    private String lockedBy;
+    private Instant lockedUntil;
+    private String lastError;
+    private Instant startedAt;
+    private Instant updatedAt;
+}
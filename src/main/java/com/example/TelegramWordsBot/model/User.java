@@ -20,4 +20,11 @@ public class User {
     private UserState userState;
     private String sheetId;
     private String authKey;
+
+    /**
+     * Copy that shares no state with this instance, for holding in memory outside JPA.
+     */
+    public User copy() {
+        return new User(chatId, userState, sheetId, authKey);
+    }
 }
@@ -0,0 +1,29 @@
+package com.example.TelegramWordsBot.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Model usage of one user on {@code day}. Only the daily totals are stored; the
+ * per-minute windows live in memory.
+ */
+@Entity
+@Table(name = "user_quotas")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserQuota {
+    @Id
+    private Long chatId;
+    private LocalDate day;
+    private long wordsUsed;
+    private long tokensUsed;
+    private Instant updatedAt;
+}
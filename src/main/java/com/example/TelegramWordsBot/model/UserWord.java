@@ -0,0 +1,67 @@
+package com.example.TelegramWordsBot.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Local copy of a word written to a user's sheet, with its SM-2 review state.
+ * Keyed by chat and normalized word, so a word sent again updates its card.
+ * Review queries go through the {@code (chatId, dueAt)} index.
+ */
+@Entity
+@Table(name = "user_words", indexes = @Index(name = "idx_user_words_due", columnList = "chatId, dueAt"))
+@IdClass(UserWord.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserWord implements Persistable<UserWord.Key> {
+    @Id
+    private Long chatId;
+    @Id
+    private String word;
+    private String original;
+    private String translation;
+    private String transcription;
+    private double ease;
+    private int intervalDays;
+    private int repetitions;
+    private Instant dueAt;
+    private Instant createdAt;
+
+    // Cards are only created with a key that is not stored yet, so a save inserts
+    // them directly instead of selecting first
+    @Transient
+    private boolean newCard = true;
+
+    @Override
+    public Key getId() {
+        return new Key(chatId, word);
+    }
+
+    @Override
+    public boolean isNew() {
+        return newCard;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        newCard = false;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long chatId;
+        private String word;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.TelegramWordsBot.model;
+
+import com.example.TelegramWordsBot.dto.JobStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A word list accepted from a user, tracked until its rows are in the sheet.
+ * {@code translatedRows} holds the model output between the GPT and Sheets stages,
+ * {@code writtenWords} the words already written by a streamed run.
+ */
+@Entity
+@Table(name = "word_jobs", indexes = @Index(name = "idx_word_jobs_status_lease", columnList = "status, lockedUntil"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class WordJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long chatId;
+    private String sheetId;
+    @Column(columnDefinition = "TEXT")
+    private String wordsText;
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String translatedRows;
+    @Column(columnDefinition = "TEXT")
+    private String writtenWords;
+    private int attempts;
+    private String lockedBy;
+    private Instant lockedUntil;
+    private String lastError;
+    private Instant createdAt;
+    private Instant updatedAt;
+}
@@ -0,0 +1,23 @@
+package com.example.TelegramWordsBot.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "word_translations")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class WordTranslation {
+    @Id
+    private String word;
+    private String translation;
+    private String transcription;
+    private Instant createdAt;
+}
@@ -0,0 +1,34 @@
+package com.example.TelegramWordsBot.repository;
+
+import com.example.TelegramWordsBot.model.ShardLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface ShardLeaseRepository extends JpaRepository<ShardLease, Integer> {
+
+    @Modifying
+    @Query("UPDATE ShardLease s SET s.leasedUntil = :until, s.ownerUrl = :url WHERE s.owner = :owner")
+    int renew(@Param("owner") String owner, @Param("url") String url, @Param("until") Instant until);
+
+    /**
+     * Takes the shard if it is free or its lease ran out. The condition is checked
+     * by the update itself, so of two nodes claiming at once only one gets 1.
+     */
+    @Modifying
+    @Query("""
+            UPDATE ShardLease s SET s.owner = :owner, s.ownerUrl = :url, s.leasedUntil = :until
+            WHERE s.shard = :shard AND (s.owner IS NULL OR s.leasedUntil < :now)
+            """)
+    int claim(@Param("shard") int shard, @Param("owner") String owner, @Param("url") String url,
+              @Param("now") Instant now, @Param("until") Instant until);
+
+    @Modifying
+    @Query("UPDATE ShardLease s SET s.owner = NULL, s.ownerUrl = NULL, s.leasedUntil = NULL WHERE s.shard = :shard AND s.owner = :owner")
+    int release(@Param("shard") int shard, @Param("owner") String owner);
+}
@@ -0,0 +1,54 @@
+package com.example.TelegramWordsBot.repository;
+
+import com.example.TelegramWordsBot.model.SheetSync;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SheetSyncRepository extends JpaRepository<SheetSync, Long> {
+
+    /**
+     * Locks running syncs whose lease has run out, of chats in the given shards
+     * out of {@code shardCount}, skipping rows another instance is claiming.
+     */
+    @Query(value = """
+            SELECT * FROM sheet_syncs
+            WHERE status = 'RUNNING'
+              AND (locked_until IS NULL OR locked_until < :now)
+              AND MOD(MOD(chat_id, :shardCount) + :shardCount, :shardCount) IN (:shards)
+            ORDER BY chat_id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<SheetSync> lockExpired(@Param("now") Instant now, @Param("shardCount") int shardCount,
+                                @Param("shards") Collection<Integer> shards, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE SheetSync s SET s.lockedUntil = :until WHERE s.chatId IN :chatIds AND s.lockedBy = :owner")
+    int renewLeases(@Param("chatIds") Collection<Long> chatIds, @Param("owner") String owner, @Param("until") Instant until);
+
+    /**
+     * Writes the sync's progress only while {@code owner} still holds it, so an
+     * instance whose lease was taken over cannot overwrite the new owner's cursor.
+     *
+     * @return 0 if another instance holds the sync now
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE SheetSync s SET s.status = :#{#sync.status}, s.nextRow = :#{#sync.nextRow},
+                s.rowsImported = :#{#sync.rowsImported}, s.attempts = :#{#sync.attempts},
+                s.lastError = :#{#sync.lastError}, s.lockedBy = :#{#sync.lockedBy},
+                s.lockedUntil = :#{#sync.lockedUntil}, s.updatedAt = :#{#sync.updatedAt}
+            WHERE s.chatId = :#{#sync.chatId} AND s.lockedBy = :owner
+            """)
+    int saveIfHeld(@Param("sync") SheetSync sync, @Param("owner") String owner);
+}
@@ -0,0 +1,9 @@
+package com.example.TelegramWordsBot.repository;
+
+import com.example.TelegramWordsBot.model.UserQuota;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserQuotaRepository extends JpaRepository<UserQuota, Long> {
+}
@@ -0,0 +1,35 @@
+package com.example.TelegramWordsBot.repository;
+
+import com.example.TelegramWordsBot.dto.DueCards;
+import com.example.TelegramWordsBot.model.UserWord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserWordRepository extends JpaRepository<UserWord, UserWord.Key> {
+
+    List<UserWord> findByChatIdAndWordIn(Long chatId, Collection<String> words);
+
+    List<UserWord> findByChatIdAndDueAtLessThanEqualOrderByDueAtAsc(Long chatId, Instant now, Pageable page);
+
+    long countByChatIdAndDueAtLessThanEqual(Long chatId, Instant now);
+
+    /**
+     * Users with due cards after {@code afterChatId}, in chatId order, for keyset paging.
+     */
+    @Query("""
+            SELECT new com.example.TelegramWordsBot.dto.DueCards(w.chatId, COUNT(w))
+            FROM UserWord w
+            WHERE w.dueAt <= :now AND w.chatId > :afterChatId
+            GROUP BY w.chatId
+            ORDER BY w.chatId
+            """)
+    List<DueCards> findDueCards(@Param("now") Instant now, @Param("afterChatId") Long afterChatId, Pageable page);
+}
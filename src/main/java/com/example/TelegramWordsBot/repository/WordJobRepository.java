@@ -0,0 +1,42 @@
+package com.example.TelegramWordsBot.repository;
+
+import com.example.TelegramWordsBot.dto.JobStatus;
+import com.example.TelegramWordsBot.model.WordJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WordJobRepository extends JpaRepository<WordJob, Long> {
+
+    /**
+     * Locks unfinished jobs whose lease has run out, of chats in the given shards
+     * out of {@code shardCount}. Rows locked by another instance's claim are
+     * skipped instead of waited for.
+     */
+    @Query(value = """
+            SELECT * FROM word_jobs
+            WHERE status IN ('PENDING', 'TRANSLATED')
+              AND (locked_until IS NULL OR locked_until < :now)
+              AND MOD(MOD(chat_id, :shardCount) + :shardCount, :shardCount) IN (:shards)
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<WordJob> lockExpired(@Param("now") Instant now, @Param("shardCount") int shardCount,
+                              @Param("shards") Collection<Integer> shards, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE WordJob j SET j.lockedUntil = :until WHERE j.id IN :ids AND j.lockedBy = :owner")
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("until") Instant until);
+
+    @Modifying
+    @Query("DELETE FROM WordJob j WHERE j.status IN :statuses AND j.updatedAt < :before")
+    int deleteByStatusUpdatedBefore(@Param("statuses") Collection<JobStatus> statuses, @Param("before") Instant before);
+}
@@ -0,0 +1,23 @@
+package com.example.TelegramWordsBot.repository;
+
+import com.example.TelegramWordsBot.model.WordTranslation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WordTranslationRepository extends JpaRepository<WordTranslation, String> {
+
+    @Query("SELECT t FROM WordTranslation t WHERE t.word IN :words AND t.createdAt >= :since")
+    List<WordTranslation> findCreatedSince(@Param("words") Collection<String> words, @Param("since") Instant since);
+
+    @Modifying
+    @Query("DELETE FROM WordTranslation t WHERE t.createdAt < :before OR t.createdAt IS NULL")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -1,63 +1,564 @@
 package com.example.TelegramWordsBot.service;
 
 import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.dto.WordList;
+import com.example.TelegramWordsBot.dto.WordResponseFormat;
 import com.example.TelegramWordsBot.exception.ChatGPTProcessingException;
-import com.example.TelegramWordsBot.util.ResourceUtils;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.TelegramWordsBot.util.JsonArrayStreamParser;
+import com.example.TelegramWordsBot.util.LineStreamParser;
+import com.example.TelegramWordsBot.util.MessageTemplates;
+import com.example.TelegramWordsBot.util.WordListParser;
+import com.example.TelegramWordsBot.util.WordNormalizer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.ResponseFormat;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
+/**
+ * Last link of the translation chain: asks the OpenAI model for every word no
+ * earlier provider knew, and remembers the answers in {@link WordCacheService}.
+ */
 @Slf4j
 @Service
-public class ChatGPTService {
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ChatGPTService implements TranslationProvider {
+
+    private static final Map<WordResponseFormat, String> PROMPT_TEMPLATES = Map.of(
+            WordResponseFormat.JSON, "promt_GPT",
+            WordResponseFormat.STRUCTURED, "promt_GPT_structured",
+            WordResponseFormat.TSV, "promt_GPT_tsv"
+    );
 
     private final ChatClient chatClient;
-    private final ObjectMapper objectMapper;
+    private final WordListParser wordListParser;
+    private final BeanOutputConverter<WordList> wordListConverter;
+    private final WordResponseFormat responseFormat;
+    private final ChatOptions requestOptions;
+    private final WordCacheService wordCache;
+    private final MessageTemplates messageTemplates;
+    private final int chunkSize;
+    private final int maxInputTokens;
+    private final int maxAttempts;
+    private final Duration streamTimeout;
+    private final ExecutorService chunkExecutor;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
-    public ChatGPTService(ChatModel chatModel, ObjectMapper objectMapper) {
+    public ChatGPTService(
+            ChatModel chatModel,
+            ObjectMapper objectMapper,
+            WordCacheService wordCache,
+            MessageTemplates messageTemplates,
+            MeterRegistry meterRegistry,
+            @Value("${chatgpt.batch.chunk-size:40}") int chunkSize,
+            @Value("${chatgpt.batch.max-input-tokens:400}") int maxInputTokens,
+            @Value("${chatgpt.batch.max-concurrency:4}") int maxConcurrency,
+            @Value("${chatgpt.batch.max-attempts:2}") int maxAttempts,
+            @Value("${chatgpt.response-format:json}") String responseFormat,
+            @Value("${http.openai.stream-timeout:3m}") Duration streamTimeout
+    ) {
         this.chatClient = ChatClient.builder(chatModel).build();
-        this.objectMapper = objectMapper;
+        this.wordListParser = new WordListParser(objectMapper);
+        this.wordListConverter = new BeanOutputConverter<>(WordList.class, objectMapper);
+        this.responseFormat = WordResponseFormat.valueOf(responseFormat.trim().toUpperCase(Locale.ROOT));
+        // Structured output: the model is held to the JSON schema of WordList
+        this.requestOptions = this.responseFormat == WordResponseFormat.STRUCTURED
+                ? OpenAiChatOptions.builder()
+                        .responseFormat(new ResponseFormat(ResponseFormat.Type.JSON_SCHEMA, wordListConverter.getJsonSchema()))
+                        .build()
+                : null;
+        this.wordCache = wordCache;
+        this.messageTemplates = messageTemplates;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxInputTokens = Math.max(1, maxInputTokens);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.streamTimeout = streamTimeout;
+        // Shared by all users, so it also caps the number of concurrent model calls
+        this.chunkExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrency));
     }
 
-    public List<WordData> processWords(String wordsList) {
-        log.debug("Processing words list: {}", wordsList);
+    @PreDestroy
+    public void shutdown() {
+        chunkExecutor.shutdownNow();
+    }
 
-        String template = ResourceUtils.readMessage("promt_GPT");
-        String prompt = String.format(template, wordsList);
+    @Override
+    public String getName() {
+        return "chatgpt";
+    }
 
+    /**
+     * Answers from the cache of earlier model replies, and asks the model for the rest.
+     * Words the model returned but was not asked for are kept under their own key.
+     */
+    @Override
+    public Map<String, WordData> translate(List<String> words) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
         try {
-            String responseText = chatClient.prompt(prompt).call().content();
-            log.debug("Received response from ChatGPT");
+            Map<String, WordData> result = translateWords(words);
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(meterRegistry.timer("chatgpt.process", "mode", "call", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Words without a cached translation. If the cache cannot be read, every word
+     * counts as uncached.
+     */
+    @Override
+    public List<String> uncached(List<String> words) {
+        Set<String> cached;
+        try {
+            cached = wordCache.cachedKeys(words.stream().map(WordNormalizer::normalize).distinct().toList());
+        } catch (RuntimeException e) {
+            log.warn("Could not check the word cache for {} words", words.size(), e);
+            return words;
+        }
+        return words.stream()
+                .filter(word -> !cached.contains(WordNormalizer.normalize(word)))
+                .toList();
+    }
+
+    private Map<String, WordData> translateWords(List<String> words) {
+        log.debug("Processing words: {}", words);
+
+        meterRegistry.summary("chatgpt.words", "mode", "call").record(words.size());
+        Map<String, WordData> known = lookupCached(words);
+        Map<String, String> misses = findMisses(words, known);
+
+        if (!misses.isEmpty()) {
+            Map<String, WordData> translated = new LinkedHashMap<>();
+            for (WordData data : requestTranslations(new ArrayList<>(misses.values()))) {
+                String key = WordNormalizer.normalize(data.getOriginal());
+                if (misses.containsKey(key)) {
+                    translated.putIfAbsent(key, data);
+                } else {
+                    known.putIfAbsent(key, data);
+                }
+            }
+            cache(translated);
+            known.putAll(translated);
+        }
+
+        log.info("Processed {} words, {} of them requested from ChatGPT", known.size(), misses.size());
+        return known;
+    }
+
+    /**
+     * Streaming variant of {@link #translate(List)}. Cached words are emitted first,
+     * then every word is emitted as soon as the model has finished its entry, so rows
+     * arrive in completion order rather than input order.
+     */
+    @Override
+    public Flux<WordData> stream(List<String> words) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return buildWordStream(words)
+                    .doOnComplete(() -> sample.stop(
+                            meterRegistry.timer("chatgpt.process", "mode", "stream", "outcome", "success")))
+                    .doOnError(e -> sample.stop(
+                            meterRegistry.timer("chatgpt.process", "mode", "stream", "outcome", "error")));
+        });
+    }
+
+    private Flux<WordData> buildWordStream(List<String> words) {
+        log.debug("Streaming words: {}", words);
+
+        meterRegistry.summary("chatgpt.words", "mode", "stream").record(words.size());
+        Map<String, WordData> known = lookupCached(words);
+        Map<String, String> misses = findMisses(words, known);
+
+        List<WordData> cachedRows = new ArrayList<>();
+        Set<String> emitted = new HashSet<>();
+        for (String word : words) {
+            String key = WordNormalizer.normalize(word);
+            WordData data = known.get(key);
+            if (data != null && emitted.add(key)) {
+                cachedRows.add(data.withOriginal(word));
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return Flux.fromIterable(cachedRows);
+        }
+
+        List<List<String>> chunks = partition(new ArrayList<>(misses.keySet()));
+        Flux<WordData> translated = Flux.create(sink -> {
+            List<CompletableFuture<Boolean>> futures = chunks.stream()
+                    .map(chunk -> CompletableFuture.supplyAsync(
+                            () -> streamChunkWithRetry(chunk, misses, sink::next), chunkExecutor))
+                    .toList();
+
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+                long failedChunks = futures.stream().filter(future -> future.isCompletedExceptionally() || !future.join()).count();
+                if (failedChunks == chunks.size()) {
+                    sink.error(new ChatGPTProcessingException("Failed to stream ChatGPT response for all chunks"));
+                } else {
+                    if (failedChunks > 0) {
+                        log.warn("{} of {} streamed chunks failed, returning partial result", failedChunks, chunks.size());
+                    }
+                    sink.complete();
+                }
+            });
+        });
 
-            String cleanedResponse = responseText.trim();
-            if (cleanedResponse.startsWith("```json")) {
-                cleanedResponse = cleanedResponse.substring(7);
+        return Flux.concat(Flux.fromIterable(cachedRows), translated);
+    }
+
+    /**
+     * Stores paid-for translations. A failure here only costs a later cache miss,
+     * so it never fails the request or hides its own error.
+     */
+    private void cache(Map<String, WordData> translated) {
+        try {
+            wordCache.putAll(translated);
+        } catch (RuntimeException e) {
+            log.warn("Could not cache {} translated words", translated.size(), e);
+        }
+    }
+
+    private Map<String, WordData> lookupCached(List<String> words) {
+        return new HashMap<>(wordCache.getAll(
+                words.stream().map(WordNormalizer::normalize).distinct().toList()
+        ));
+    }
+
+    private static Map<String, String> findMisses(List<String> words, Map<String, WordData> known) {
+        Map<String, String> misses = new LinkedHashMap<>();
+        for (String word : words) {
+            String key = WordNormalizer.normalize(word);
+            if (!known.containsKey(key)) {
+                misses.putIfAbsent(key, word);
             }
-            if (cleanedResponse.startsWith("```")) {
-                cleanedResponse = cleanedResponse.substring(3);
+        }
+        return misses;
+    }
+
+    /**
+     * Cuts the words into chunks of at most {@code chatgpt.batch.chunk-size} words and
+     * roughly {@code chatgpt.batch.max-input-tokens} tokens of word list each.
+     */
+    private List<List<String>> partition(List<String> words) {
+        List<List<String>> chunks = new ArrayList<>();
+        int start = 0;
+        int tokens = 0;
+        for (int i = 0; i < words.size(); i++) {
+            int wordTokens = estimateTokens(words.get(i));
+            if (i > start && (i - start >= chunkSize || tokens + wordTokens > maxInputTokens)) {
+                chunks.add(words.subList(start, i));
+                start = i;
+                tokens = 0;
             }
-            if (cleanedResponse.endsWith("```")) {
-                cleanedResponse = cleanedResponse.substring(0, cleanedResponse.length() - 3);
+            tokens += wordTokens;
+        }
+        if (start < words.size()) {
+            chunks.add(words.subList(start, words.size()));
+        }
+        return chunks;
+    }
+
+    // About four characters per token for English text, plus the separating newline
+    private static int estimateTokens(String word) {
+        return word.length() / 4 + 2;
+    }
+
+    /**
+     * Splits the words into chunks, translates them concurrently and returns the
+     * results in input order. A chunk that still fails after all attempts is
+     * skipped and its words are missing from the result, for the job to retry;
+     * the batch only fails when no chunk succeeded.
+     */
+    private List<WordData> requestTranslations(List<String> words) {
+        List<List<String>> chunks = partition(words);
+        log.debug("Sending {} words to ChatGPT in {} chunks", words.size(), chunks.size());
+
+        List<CompletableFuture<List<WordData>>> futures = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> requestChunkWithRetry(chunk), chunkExecutor))
+                .toList();
+
+        List<WordData> result = new ArrayList<>();
+        ChatGPTProcessingException lastError = null;
+        int failedChunks = 0;
+
+        for (CompletableFuture<List<WordData>> future : futures) {
+            try {
+                result.addAll(future.join());
+            } catch (CompletionException e) {
+                failedChunks++;
+                lastError = e.getCause() instanceof ChatGPTProcessingException cause
+                        ? cause
+                        : new ChatGPTProcessingException("ChatGPT request failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        if (failedChunks == chunks.size()) {
+            throw lastError;
+        }
+        if (failedChunks > 0) {
+            log.warn("{} of {} chunks failed, returning partial result", failedChunks, chunks.size());
+        }
+        return result;
+    }
+
+    private List<WordData> requestChunkWithRetry(List<String> words) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return requestChunk(words);
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Chunk of {} words failed after {} attempts", words.size(), attempt);
+                    throw e;
+                }
+                log.warn("Chunk of {} words failed (attempt {}/{}), retrying", words.size(), attempt, maxAttempts, e);
             }
-            cleanedResponse = cleanedResponse.trim();
+        }
+    }
 
-            List<WordData> result = objectMapper.readValue(cleanedResponse, new TypeReference<List<WordData>>() {});
+    /**
+     * Streams one chunk, retrying only the words that were not emitted yet.
+     * Runs on the chunk executor, so streamed chunks share the global concurrency cap.
+     *
+     * @param keys normalized words of the chunk
+     * @param misses normalized word to the word as the user typed it
+     * @return {@code false} if some words were still untranslated after all attempts
+     */
+    private boolean streamChunkWithRetry(List<String> keys, Map<String, String> misses, Consumer<WordData> onWord) {
+        Set<String> pending = new LinkedHashSet<>(keys);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                streamChunk(pending, misses, onWord);
+                return true;
+            } catch (RuntimeException e) {
+                if (pending.isEmpty()) {
+                    return true;
+                }
+                if (attempt >= maxAttempts) {
+                    log.error("Streamed chunk failed after {} attempts, {} words left", attempt, pending.size(), e);
+                    return false;
+                }
+                log.warn("Streamed chunk failed (attempt {}/{}), retrying {} words",
+                        attempt, maxAttempts, pending.size(), e);
+            }
+        }
+    }
+
+    private void streamChunk(Set<String> pending, Map<String, String> misses, Consumer<WordData> onWord) {
+        List<String> words = pending.stream().map(misses::get).toList();
+        String prompt = messageTemplates.prompt(PROMPT_TEMPLATES.get(responseFormat)).render(words);
+        StreamDecoder decoder = newStreamDecoder();
+        Map<String, WordData> translated = new LinkedHashMap<>();
+        Consumer<WordData> accept = data -> {
+            String key = WordNormalizer.normalize(data.getOriginal());
+            if (pending.remove(key)) {
+                translated.put(key, data);
+                onWord.accept(data.withOriginal(misses.get(key)));
+            } else if (!misses.containsKey(key)) {
+                onWord.accept(data);
+            }
+        };
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+
+        try {
+            request(prompt).stream().content()
+                    .doOnNext(part -> decoder.feed(part).forEach(accept))
+                    .timeout(streamTimeout)
+                    .blockLast();
+            decoder.finish().forEach(accept);
+            outcome = pending.isEmpty() ? "success" : "incomplete";
+        } finally {
+            sample.stop(meterRegistry.timer("chatgpt.requests", "mode", "stream", "outcome", outcome));
+            cache(translated);
+        }
+
+        if (!pending.isEmpty()) {
+            throw new ChatGPTProcessingException("ChatGPT stream ended without " + pending.size() + " words");
+        }
+    }
+
+    private ChatClient.ChatClientRequestSpec request(String prompt) {
+        ChatClient.ChatClientRequestSpec spec = chatClient.prompt(prompt);
+        return requestOptions != null ? spec.options(requestOptions) : spec;
+    }
+
+    /**
+     * Turns streamed text into words as soon as each entry is complete.
+     */
+    private interface StreamDecoder {
+        List<WordData> feed(CharSequence part);
+
+        List<WordData> finish();
+    }
+
+    private StreamDecoder newStreamDecoder() {
+        if (responseFormat == WordResponseFormat.TSV) {
+            LineStreamParser lines = new LineStreamParser();
+            return new StreamDecoder() {
+                @Override
+                public List<WordData> feed(CharSequence part) {
+                    return parseLines(lines.feed(part));
+                }
+
+                @Override
+                public List<WordData> finish() {
+                    return parseLines(List.of(lines.finish()));
+                }
+            };
+        }
+
+        JsonArrayStreamParser objects = new JsonArrayStreamParser();
+        return new StreamDecoder() {
+            @Override
+            public List<WordData> feed(CharSequence part) {
+                List<WordData> words = new ArrayList<>();
+                for (String json : objects.feed(part)) {
+                    WordData data = parseWord(json);
+                    if (data != null) {
+                        words.add(data);
+                    }
+                }
+                return words;
+            }
+
+            @Override
+            public List<WordData> finish() {
+                return List.of();
+            }
+        };
+    }
+
+    private List<WordData> parseLines(List<String> lines) {
+        List<WordData> words = new ArrayList<>();
+        for (String line : lines) {
+            if (WordListParser.isIgnorableTsvLine(line)) {
+                continue;
+            }
+            WordData data = WordListParser.parseTsvLine(line);
+            if (data == null) {
+                meterRegistry.counter("chatgpt.parse.failures", "mode", "stream").increment();
+                log.warn("Skipping malformed word line from ChatGPT: {}", line);
+            } else {
+                words.add(data);
+            }
+        }
+        return words;
+    }
+
+    private WordData parseWord(String json) {
+        WordData data = wordListParser.parseObject(json);
+        if (data == null) {
+            meterRegistry.counter("chatgpt.parse.failures", "mode", "stream").increment();
+            log.warn("Skipping malformed word object from ChatGPT: {}", json);
+        }
+        return data;
+    }
+
+    private List<WordData> requestChunk(List<String> words) {
+        String prompt = messageTemplates.prompt(PROMPT_TEMPLATES.get(responseFormat)).render(words);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ChatResponse response = request(prompt).call().chatResponse();
+            recordUsage(response);
+            String responseText = response.getResult().getOutput().getText();
+            log.debug("Received response from ChatGPT");
+            outcome = "parse_error";
+
+            List<WordData> result = parseResponse(responseText);
             log.info("Successfully processed {} words", result.size());
+            outcome = "success";
             return result;
             
         } catch (ChatGPTProcessingException e) {
+            log.error("Error parsing ChatGPT response: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
             log.error("Error parsing ChatGPT response", e);
             throw new ChatGPTProcessingException("Failed to parse ChatGPT response: " + e.getMessage(), e);
+        } finally {
+            if (outcome.equals("parse_error")) {
+                meterRegistry.counter("chatgpt.parse.failures", "mode", "call").increment();
+            }
+            sample.stop(meterRegistry.timer("chatgpt.requests", "mode", "call", "outcome", outcome));
         }
     }
-}
 
+    /**
+     * Parses the whole reply at once when it is well-formed, otherwise salvages the
+     * entries one by one. Fails only if not a single word could be recovered.
+     */
+    private List<WordData> parseResponse(String responseText) {
+        WordListParser.Result result = switch (responseFormat) {
+            case TSV -> WordListParser.parseTsv(responseText);
+            case STRUCTURED -> parseWholeOrSalvage(() -> wordListConverter.convert(responseText).words(), responseText);
+            case JSON -> parseWholeOrSalvage(() -> wordListParser.parse(responseText), responseText);
+        };
+
+        if (result.malformed() > 0) {
+            meterRegistry.counter("chatgpt.parse.skipped", "mode", "call").increment(result.malformed());
+            log.warn("Skipped {} malformed entries in ChatGPT response, kept {}", result.malformed(), result.words().size());
+        }
+        if (result.words().isEmpty()) {
+            throw new ChatGPTProcessingException("No valid words in ChatGPT response");
+        }
+        return result.words();
+    }
+
+    private WordListParser.Result parseWholeOrSalvage(Callable<List<WordData>> parseWhole, String responseText) {
+        try {
+            List<WordData> words = parseWhole.call();
+            if (words != null) {
+                return new WordListParser.Result(words, 0);
+            }
+        } catch (Exception e) {
+            log.debug("ChatGPT response is not well-formed, salvaging entries: {}", e.getMessage());
+        }
+        return wordListParser.parseLenient(responseText);
+    }
+
+    private void recordUsage(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        if (usage.getPromptTokens() != null) {
+            meterRegistry.counter("chatgpt.tokens", "type", "prompt").increment(usage.getPromptTokens());
+        }
+        if (usage.getCompletionTokens() != null) {
+            meterRegistry.counter("chatgpt.tokens", "type", "completion").increment(usage.getCompletionTokens());
+        }
+    }
+}
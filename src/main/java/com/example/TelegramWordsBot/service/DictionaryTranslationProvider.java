@@ -0,0 +1,80 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.util.WordDictionary;
+import com.example.TelegramWordsBot.util.WordNormalizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * First link of the translation chain: an offline dictionary held in memory, so
+ * common words are answered without a network call. The file is taken from
+ * {@code translation.dictionary.path}, or the bundled {@code dictionary/en-uk.tsv}.
+ */
+@Slf4j
+@Service
+@Order(0)
+public class DictionaryTranslationProvider implements TranslationProvider {
+
+    private static final String BUNDLED_DICTIONARY = "dictionary/en-uk.tsv";
+
+    private final WordDictionary dictionary;
+
+    public DictionaryTranslationProvider(
+            @Value("${translation.dictionary.path:}") String path,
+            MeterRegistry meterRegistry
+    ) {
+        Resource resource = path.isBlank() ? new ClassPathResource(BUNDLED_DICTIONARY) : new FileSystemResource(path);
+        this.dictionary = load(resource);
+        log.info("Loaded {} dictionary entries from {}", dictionary.size(), resource.getDescription());
+
+        Gauge.builder("translation.dictionary.size", dictionary, WordDictionary::size).register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return "dictionary";
+    }
+
+    @Override
+    public Map<String, WordData> translate(List<String> words) {
+        Map<String, WordData> found = new HashMap<>();
+        for (String word : words) {
+            String key = WordNormalizer.normalize(word);
+            WordData data = dictionary.lookup(key);
+            if (data != null) {
+                found.put(key, data);
+            }
+        }
+        return found;
+    }
+
+    private static WordDictionary load(Resource resource) {
+        if (!resource.exists()) {
+            log.warn("Dictionary {} not found, all words go to the next provider", resource.getDescription());
+            return WordDictionary.empty();
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            return WordDictionary.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read dictionary " + resource.getDescription(), e);
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.TelegramWordsBot.service;
 
+import com.example.TelegramWordsBot.dto.SheetRows;
 import com.example.TelegramWordsBot.dto.WordData;
 import com.example.TelegramWordsBot.exception.CredentialsNotFoundException;
 import com.example.TelegramWordsBot.exception.GoogleSheetsException;
 import com.example.TelegramWordsBot.model.User;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.example.TelegramWordsBot.util.WordNormalizer;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.sheets.v4.Sheets;
@@ -13,16 +17,22 @@ import com.google.api.services.sheets.v4.model.*;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.ServiceAccountCredentials;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.GeneralSecurityException;
-import java.util.Arrays;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
@@ -31,32 +41,64 @@ public class GoogleSheetsService {
     private static final String APPLICATION_NAME = "Telegram Words Bot";
     private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
     private static final List<String> SCOPES = Collections.singletonList("https://www.googleapis.com/auth/spreadsheets");
+    private static final String HEADER_RANGE = "A1:C1";
+    private static final String HEADER_ORIGINAL = "Original";
+    private static final List<Color> COLUMN_COLORS = List.of(
+            new Color().setRed(1f).setGreen(0.8f).setBlue(0.8f), // Original → светло-розовый
+            new Color().setRed(0.8f).setGreen(1f).setBlue(0.8f), // Translation → светло-зелёный
+            new Color().setRed(0.8f).setGreen(0.8f).setBlue(1f)  // Transcription → светло-голубой
+    );
 
     private final String credentialsPath;
+    private final HttpTransport httpTransport;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
     private final Sheets sheetsService;
+    private final MeterRegistry meterRegistry;
+    // First tab metadata per spreadsheet. Appends are positioned by the API, so the
+    // only row state a write needs is whether the header row is already there.
+    private final Map<String, SheetInfo> metadataCache = new ConcurrentHashMap<>();
+    private final Map<String, ExistingWords> existingWordsCache = new ConcurrentHashMap<>();
+    private final Duration existingWordsTtl;
 
     public GoogleSheetsService(
-            @Value("${google.sheets.credentials-path:credentials.json}") String credentialsPath
-    ) throws GeneralSecurityException, IOException, CredentialsNotFoundException {
+            @Value("${google.sheets.credentials-path:credentials.json}") String credentialsPath,
+            @Value("${google.sheets.existing-words-ttl:10m}") Duration existingWordsTtl,
+            HttpTransport sheetsHttpTransport,
+            @Value("${http.sheets.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${http.sheets.read-timeout:30s}") Duration readTimeout,
+            MeterRegistry meterRegistry
+    ) throws IOException, CredentialsNotFoundException {
         this.credentialsPath = credentialsPath;
+        this.httpTransport = sheetsHttpTransport;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.existingWordsTtl = existingWordsTtl;
+        this.meterRegistry = meterRegistry;
         this.sheetsService = createSheetsService();
     }
 
-    private Sheets createSheetsService() throws IOException, GeneralSecurityException, CredentialsNotFoundException {
+    private Sheets createSheetsService() throws IOException, CredentialsNotFoundException {
         log.debug("Creating Google Sheets service with credentials from: {}", credentialsPath);
-        
-        final var HTTP_TRANSPORT = GoogleNetHttpTransport.newTrustedTransport();
+
         InputStream credentialsStream = getClass().getClassLoader().getResourceAsStream(credentialsPath);
         if (credentialsStream == null) {
             log.error("Credentials file not found: {}", credentialsPath);
             throw new CredentialsNotFoundException("Credentials file not found: " + credentialsPath);
         }
 
-        GoogleCredentials credentials = ServiceAccountCredentials.fromStream(credentialsStream)
+        // Token refreshes share the pooled transport with the API calls
+        GoogleCredentials credentials = ServiceAccountCredentials.fromStream(credentialsStream, () -> httpTransport)
                 .createScoped(SCOPES);
+        HttpCredentialsAdapter credentialsAdapter = new HttpCredentialsAdapter(credentials);
+        HttpRequestInitializer initializer = request -> {
+            credentialsAdapter.initialize(request);
+            request.setConnectTimeout((int) connectTimeout.toMillis());
+            request.setReadTimeout((int) readTimeout.toMillis());
+        };
 
         log.info("Google Sheets service created successfully");
-        return new Sheets.Builder(HTTP_TRANSPORT, JSON_FACTORY, new HttpCredentialsAdapter(credentials))
+        return new Sheets.Builder(httpTransport, JSON_FACTORY, initializer)
                 .setApplicationName(APPLICATION_NAME)
                 .build();
     }
@@ -69,10 +111,7 @@ public class GoogleSheetsService {
         }
         
         try {
-            sheetsService.spreadsheets()
-                    .get(spreadsheetId)
-                    .setIncludeGridData(false)
-                    .execute();
+            metadataCache.put(spreadsheetId, loadSheetInfo(spreadsheetId));
 
             log.debug("Spreadsheet {} exists and is accessible", spreadsheetId);
             return true;
@@ -81,6 +120,7 @@ public class GoogleSheetsService {
             int status = e.getStatusCode();
 
             if (status == 404 || status == 403) {
+                metadataCache.remove(spreadsheetId);
                 log.warn("Spreadsheet {} not found or access denied (status: {})", spreadsheetId, status);
                 return false;
             }
@@ -94,111 +134,263 @@ public class GoogleSheetsService {
         }
     }
 
-    private String getDefaultSheetName(String sheetId) throws IOException {
-        Spreadsheet spreadsheet = sheetsService.spreadsheets()
-                .get(sheetId)
-                .setFields("sheets.properties.title")
-                .execute();
+    /**
+     * Returns the cached metadata of the first tab, loading it on first use or after
+     * it was invalidated by a failed write.
+     */
+    private SheetInfo getDefaultSheetInfo(String sheetId) throws IOException {
+        SheetInfo cached = metadataCache.get(sheetId);
+        if (cached != null) {
+            return cached;
+        }
 
-        return spreadsheet.getSheets()
-                .get(0)
-                .getProperties()
-                .getTitle();
+        SheetInfo loaded = loadSheetInfo(sheetId);
+        metadataCache.put(sheetId, loaded);
+        return loaded;
     }
 
+    /**
+     * Reads the first tab's id and title together with its first row, which tells
+     * whether the header still has to be written. The response size does not
+     * depend on how many rows the sheet already holds.
+     */
+    private SheetInfo loadSheetInfo(String sheetId) throws IOException {
+        Spreadsheet spreadsheet = execute("spreadsheets.get", sheetsService.spreadsheets()
+                .get(sheetId)
+                .setRanges(List.of(HEADER_RANGE))
+                .setFields("sheets(properties(sheetId,title),data(rowData(values(formattedValue))))"));
 
-    public void writeWords(List<WordData> words, User user) {
-        String sheetId = user.getSheetId();
-        log.debug("Writing {} words to spreadsheet {} for user {}", words.size(), sheetId, user.getChatId());
+        Sheet sheet = spreadsheet.getSheets().get(0);
+        List<GridData> data = sheet.getData();
+        boolean hasHeader = data != null && !data.isEmpty()
+                && data.get(0).getRowData() != null && !data.get(0).getRowData().isEmpty();
+
+        return new SheetInfo(sheet.getProperties().getSheetId(), sheet.getProperties().getTitle(), hasHeader);
+    }
+
+    /**
+     * Normalized words in column A of the first tab. The column is read once and then
+     * kept up to date with this service's own appends; it is read again after
+     * {@code google.sheets.existing-words-ttl} to pick up edits made in the sheet.
+     */
+    public Set<String> existingWords(String sheetId) {
+        ExistingWords cached = existingWordsCache.get(sheetId);
+        if (cached != null && cached.loadedAt().plus(existingWordsTtl).isAfter(Instant.now())) {
+            return Collections.unmodifiableSet(cached.words());
+        }
 
         try {
-            String sheetName = getDefaultSheetName(sheetId);
-            String range = sheetName + "!A:C";
-            ValueRange response = sheetsService.spreadsheets().values()
+            SheetInfo sheet = getDefaultSheetInfo(sheetId);
+            String range = "'" + sheet.title().replace("'", "''") + "'!A:A";
+            ValueRange column = execute("spreadsheets.values.get", sheetsService.spreadsheets().values()
                     .get(sheetId, range)
-                    .execute();
-
-            List<List<Object>> values = response.getValues();
-            boolean isEmpty = (values == null || values.isEmpty());
-            int nextRow = isEmpty ? 2 : values.size() + 1;
-
-            if (isEmpty) {
-                log.debug("Adding headers to empty spreadsheet");
-                ValueRange headerBody = new ValueRange()
-                        .setValues(List.of(List.of("Original", "Translation", "Transcription")));
-                sheetsService.spreadsheets().values()
-                        .update(sheetId, sheetName + "!A1:C1", headerBody)
-                        .setValueInputOption("RAW")
-                        .execute();
+                    .setMajorDimension("COLUMNS"));
+
+            Set<String> words = ConcurrentHashMap.newKeySet();
+            if (column.getValues() != null && !column.getValues().isEmpty()) {
+                List<Object> values = column.getValues().get(0);
+                // The header cell written by appendRows is not a word
+                int first = !values.isEmpty() && HEADER_ORIGINAL.equalsIgnoreCase(values.get(0).toString().trim()) ? 1 : 0;
+                for (Object value : values.subList(first, values.size())) {
+                    words.add(WordNormalizer.normalize(value.toString()));
+                }
+            }
+            existingWordsCache.put(sheetId, new ExistingWords(words, Instant.now()));
+            log.debug("Loaded {} existing words from spreadsheet {}", words.size(), sheetId);
+            return Collections.unmodifiableSet(words);
+
+        } catch (GoogleJsonResponseException e) {
+            log.error("Google Sheets API error while reading words from spreadsheet {}: HTTP {}", sheetId, e.getStatusCode(), e);
+            throw new GoogleSheetsException("Failed to read words from Google Sheets: HTTP " + e.getStatusCode(),
+                    e.getStatusCode(), e);
+        } catch (IOException e) {
+            log.error("Error reading words from spreadsheet {}", sheetId, e);
+            throw new GoogleSheetsException("Failed to read words from Google Sheets", e);
+        }
+    }
+
+    /**
+     * Reads rows {@code firstRow} to {@code firstRow + count - 1} (1-based) of the
+     * first tab, columns A to C. Only the window is fetched, however large the
+     * sheet is. Rows without a word or a translation are skipped.
+     */
+    public SheetRows readRows(String sheetId, int firstRow, int count) {
+        try {
+            SheetInfo sheet = getDefaultSheetInfo(sheetId);
+            String range = "'" + sheet.title().replace("'", "''") + "'!A" + firstRow + ":C" + (firstRow + count - 1);
+            ValueRange window = execute("spreadsheets.values.get", sheetsService.spreadsheets().values()
+                    .get(sheetId, range));
+
+            // Trailing blank rows are not returned, so a short window may still have data below a gap
+            List<List<Object>> values = window.getValues() != null ? window.getValues() : List.of();
+            List<WordData> words = new ArrayList<>(values.size());
+            for (List<Object> row : values) {
+                String original = cell(row, 0);
+                String translation = cell(row, 1);
+                if (!original.isEmpty() && !translation.isEmpty()) {
+                    WordData word = new WordData();
+                    word.setOriginal(original);
+                    word.setTranslation(translation);
+                    word.setTranscription(cell(row, 2));
+                    words.add(word);
+                }
             }
+            boolean last = values.size() < count && firstRow + count - 1 >= rowCount(sheetId);
+            return new SheetRows(words, values.size(), last);
 
-            List<List<Object>> data = words.stream()
-                    .map(word -> Arrays.<Object>asList(
-                            word.getOriginal(),
-                            word.getTranslation(),
-                            word.getTranscription()
-                    ))
-                    .toList();
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() == 400) {
+                // The cached tab title may be stale; the next window loads it again
+                metadataCache.remove(sheetId);
+            }
+            log.error("Google Sheets API error while reading rows from spreadsheet {}: HTTP {}", sheetId, e.getStatusCode(), e);
+            throw new GoogleSheetsException("Failed to read rows from Google Sheets: HTTP " + e.getStatusCode(),
+                    e.getStatusCode(), e);
+        } catch (IOException e) {
+            log.error("Error reading rows from spreadsheet {}", sheetId, e);
+            throw new GoogleSheetsException("Failed to read rows from Google Sheets", e);
+        }
+    }
 
-            ValueRange body = new ValueRange().setValues(data);
-            String writeRange = sheetName + "!A" + nextRow + ":C" + (nextRow + words.size() - 1);
+    /**
+     * Size of the first tab's grid; no data lies below it. Read fresh, since
+     * appends grow the grid.
+     */
+    private int rowCount(String sheetId) throws IOException {
+        Spreadsheet spreadsheet = execute("spreadsheets.get", sheetsService.spreadsheets()
+                .get(sheetId)
+                .setFields("sheets(properties(gridProperties(rowCount)))"));
+        Integer rowCount = spreadsheet.getSheets().get(0).getProperties().getGridProperties().getRowCount();
+        return rowCount != null ? rowCount : 0;
+    }
 
-            sheetsService.spreadsheets().values()
-                    .update(sheetId, writeRange, body)
-                    .setValueInputOption("RAW")
-                    .execute();
+    private static String cell(List<Object> row, int column) {
+        return column < row.size() && row.get(column) != null ? row.get(column).toString().trim() : "";
+    }
 
-            log.debug("Words written to range: {}", writeRange);
+    /**
+     * Number of API requests the next {@link #writeWords} to the spreadsheet makes:
+     * the append, preceded by a metadata read unless the metadata is cached. Cached
+     * metadata that turned out stale costs two more.
+     */
+    public int requestsPerWrite(String sheetId) {
+        return metadataCache.containsKey(sheetId) ? 1 : 2;
+    }
+
+    /**
+     * Appends the words after the last filled row of the first tab in a single
+     * batchUpdate. Header and column colors are sent in the same request.
+     */
+    public void writeWords(List<WordData> words, User user) {
+        log.debug("Writing words for user {}", user.getChatId());
+        writeWords(words, user.getSheetId());
+    }
+
+    public void writeWords(List<WordData> words, String sheetId) {
+        log.debug("Writing {} words to spreadsheet {}", words.size(), sheetId);
+
+        if (words.isEmpty()) {
+            log.debug("Nothing to write to spreadsheet {}", sheetId);
+            return;
+        }
+
+        try {
+            boolean cached = metadataCache.containsKey(sheetId);
+            try {
+                appendRows(sheetId, getDefaultSheetInfo(sheetId), words);
+            } catch (GoogleJsonResponseException e) {
+                if (e.getStatusCode() < 400 || e.getStatusCode() >= 500) {
+                    throw e;
+                }
+                // The tab may have been deleted, renamed or reordered since the metadata was cached
+                metadataCache.remove(sheetId);
+                existingWordsCache.remove(sheetId);
+                if (!cached || e.getStatusCode() != 400) {
+                    throw e;
+                }
+                log.warn("Cached metadata for spreadsheet {} is stale, retrying with fresh metadata", sheetId);
+                appendRows(sheetId, getDefaultSheetInfo(sheetId), words);
+            }
 
-            colorColumn(sheetId, 0, new float[]{1f, 0.8f, 0.8f}); // Original → светло-розовый
-            colorColumn(sheetId, 1, new float[]{0.8f, 1f, 0.8f}); // Translation → светло-зелёный
-            colorColumn(sheetId, 2, new float[]{0.8f, 0.8f, 1f}); // Transcription → светло-голубой
-            
             log.info("Successfully wrote {} words to spreadsheet {}", words.size(), sheetId);
-            
+
+        } catch (GoogleJsonResponseException e) {
+            log.error("Google Sheets API error while writing to spreadsheet {}: HTTP {}", sheetId, e.getStatusCode(), e);
+            throw new GoogleSheetsException("Failed to write words to Google Sheets: HTTP " + e.getStatusCode(),
+                    e.getStatusCode(), e);
         } catch (IOException e) {
             log.error("Error writing words to spreadsheet {}", sheetId, e);
             throw new GoogleSheetsException("Failed to write words to Google Sheets", e);
         }
     }
 
-
-    public void colorColumn(String sheetId, int columnIndex, float[] rgbColor) {
-        if (rgbColor.length != 3) {
-            throw new IllegalArgumentException("rgbColor must contain 3 values: {r, g, b}");
+    private void appendRows(String sheetId, SheetInfo sheet, List<WordData> words) throws IOException {
+        if (!sheet.hasHeader()) {
+            log.debug("Adding headers to empty spreadsheet");
         }
-        
-        try {
+        List<RowData> rows = buildRows(words, !sheet.hasHeader());
 
-        int sheetTabId = 0;
+        var appendRequest = new AppendCellsRequest()
+                .setSheetId(sheet.tabId())
+                .setRows(rows)
+                .setFields("userEnteredValue,userEnteredFormat.backgroundColor");
 
-        var color = new Color()
-                .setRed(rgbColor[0])
-                .setGreen(rgbColor[1])
-                .setBlue(rgbColor[2]);
+        var batchRequest = new BatchUpdateSpreadsheetRequest()
+                .setRequests(List.of(new Request().setAppendCells(appendRequest)));
 
-        var cellFormat = new CellFormat().setBackgroundColor(color);
+        execute("spreadsheets.batchUpdate", sheetsService.spreadsheets().batchUpdate(sheetId, batchRequest));
 
-        var range = new GridRange()
-                .setSheetId(sheetTabId)
-                .setStartColumnIndex(columnIndex)
-                .setEndColumnIndex(columnIndex + 1)
-                .setStartRowIndex(0)
-                .setEndRowIndex(1000);
+        if (!sheet.hasHeader()) {
+            metadataCache.put(sheetId, new SheetInfo(sheet.tabId(), sheet.title(), true));
+        }
+        ExistingWords existing = existingWordsCache.get(sheetId);
+        if (existing != null) {
+            words.forEach(word -> existing.words().add(WordNormalizer.normalize(word.getOriginal())));
+        }
+    }
 
-        var repeatCellRequest = new RepeatCellRequest()
-                .setRange(range)
-                .setCell(new CellData().setUserEnteredFormat(cellFormat))
-                .setFields("userEnteredFormat.backgroundColor");
+    private <T> T execute(String operation, AbstractGoogleClientRequest<T> request) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "io_error";
+        try {
+            T response = request.execute();
+            outcome = "success";
+            return response;
+        } catch (GoogleJsonResponseException e) {
+            outcome = "http_" + e.getStatusCode();
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("sheets.api.calls", "operation", operation, "outcome", outcome));
+        }
+    }
 
-        var batchRequest = new BatchUpdateSpreadsheetRequest()
-                .setRequests(List.of(new Request().setRepeatCell(repeatCellRequest)));
+    /**
+     * Builds the colored cells for an append, optionally preceded by the header row.
+     */
+    public static List<RowData> buildRows(List<WordData> words, boolean withHeader) {
+        List<RowData> rows = new ArrayList<>(words.size() + 1);
+        if (withHeader) {
+            rows.add(toRow(HEADER_ORIGINAL, "Translation", "Transcription"));
+        }
+        for (WordData word : words) {
+            rows.add(toRow(word.getOriginal(), word.getTranslation(), word.getTranscription()));
+        }
+        return rows;
+    }
 
-        sheetsService.spreadsheets().batchUpdate(sheetId, batchRequest).execute();
-        
-        } catch (IOException e) {
-            log.error("Error coloring column {} in spreadsheet {}", columnIndex, sheetId, e);
-            throw new GoogleSheetsException("Failed to color column in Google Sheets", e);
+    private static RowData toRow(String... values) {
+        List<CellData> cells = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            cells.add(new CellData()
+                    .setUserEnteredValue(new ExtendedValue().setStringValue(values[i] == null ? "" : values[i]))
+                    .setUserEnteredFormat(new CellFormat().setBackgroundColor(COLUMN_COLORS.get(i))));
         }
+        return new RowData().setValues(cells);
+    }
+
+    private record SheetInfo(int tabId, String title, boolean hasHeader) {
+    }
+
+    private record ExistingWords(Set<String> words, Instant loadedAt) {
     }
 }
@@ -0,0 +1,235 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.model.UserQuota;
+import com.example.TelegramWordsBot.repository.UserQuotaRepository;
+import com.example.TelegramWordsBot.util.WindowCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-user budget for model usage, in words and estimated tokens, per minute and
+ * per day. Counting happens in memory with lock-free counters; the daily totals
+ * are written to {@code user_quotas} every {@code quota.flush-interval} and read
+ * back the first time a user is seen, so a restart does not reset the day.
+ */
+@Slf4j
+@Service
+public class QuotaService {
+
+    // A reply line (translation and transcription) costs about this many tokens per word
+    private static final int REPLY_TOKENS_PER_WORD = 15;
+
+    private final UserQuotaRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock = Clock.systemDefaultZone();
+    private final int maxWordsPerRequest;
+    private final long wordsPerMinute;
+    private final long tokensPerMinute;
+    private final long wordsPerDay;
+    private final long tokensPerDay;
+
+    private final Map<Long, Usage> usages = new ConcurrentHashMap<>();
+
+    public QuotaService(
+            UserQuotaRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${quota.max-words-per-request:300}") int maxWordsPerRequest,
+            @Value("${quota.words-per-minute:300}") long wordsPerMinute,
+            @Value("${quota.tokens-per-minute:10000}") long tokensPerMinute,
+            @Value("${quota.words-per-day:2000}") long wordsPerDay,
+            @Value("${quota.tokens-per-day:60000}") long tokensPerDay
+    ) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.maxWordsPerRequest = maxWordsPerRequest;
+        this.wordsPerMinute = wordsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.wordsPerDay = wordsPerDay;
+        this.tokensPerDay = tokensPerDay;
+
+        Gauge.builder("quota.users", usages, Map::size).register(meterRegistry);
+    }
+
+    public int getMaxWordsPerRequest() {
+        return maxWordsPerRequest;
+    }
+
+    /**
+     * Charges the words to the user's budget if every limit allows it. Nothing is
+     * charged when the request is refused. Only words that go to the model count;
+     * the caller leaves out what is answered offline.
+     */
+    public Charge tryAcquire(Long chatId, List<String> words) {
+        if (words.size() > maxWordsPerRequest) {
+            return reject(Decision.TOO_LARGE);
+        }
+        if (words.isEmpty()) {
+            return new Charge(Decision.ALLOWED, 0, 0, 0, 0);
+        }
+
+        long tokens = estimateTokens(words);
+        long minute = clock.millis() / 60_000;
+        long day = LocalDate.now(clock).toEpochDay();
+        Usage loaded = usages.containsKey(chatId) ? null : load(chatId, day);
+
+        // Charged under the map's lock, so flush cannot evict the entry in between
+        Decision[] decision = {null};
+        usages.compute(chatId, (id, current) -> {
+            Usage usage = current != null ? current : loaded != null ? loaded : load(chatId, day);
+            decision[0] = charge(usage, minute, day, words.size(), tokens);
+            return usage;
+        });
+
+        if (decision[0] != Decision.ALLOWED) {
+            return reject(decision[0]);
+        }
+        meterRegistry.counter("quota.words").increment(words.size());
+        return new Charge(Decision.ALLOWED, minute, day, words.size(), tokens);
+    }
+
+    /**
+     * Gives back a charge whose request failed. Windows that have ended since the
+     * charge keep it.
+     */
+    public void refund(Long chatId, Charge charge) {
+        if (charge.decision() != Decision.ALLOWED || charge.words() == 0) {
+            return;
+        }
+        usages.computeIfPresent(chatId, (id, usage) -> {
+            usage.wordsPerDay.subtract(charge.day(), charge.words());
+            usage.tokensPerDay.subtract(charge.day(), charge.tokens());
+            usage.wordsPerMinute.subtract(charge.minute(), charge.words());
+            usage.tokensPerMinute.subtract(charge.minute(), charge.tokens());
+            usage.dirty.set(true);
+            return usage;
+        });
+        meterRegistry.counter("quota.refunded").increment(charge.words());
+    }
+
+    private Decision charge(Usage usage, long minute, long day, int words, long tokens) {
+        if (!usage.wordsPerDay.tryAdd(day, words, wordsPerDay)) {
+            return Decision.DAILY_LIMIT;
+        }
+        if (!usage.tokensPerDay.tryAdd(day, tokens, tokensPerDay)) {
+            usage.wordsPerDay.subtract(day, words);
+            return Decision.DAILY_LIMIT;
+        }
+        if (!usage.wordsPerMinute.tryAdd(minute, words, wordsPerMinute)) {
+            usage.wordsPerDay.subtract(day, words);
+            usage.tokensPerDay.subtract(day, tokens);
+            return Decision.MINUTE_LIMIT;
+        }
+        if (!usage.tokensPerMinute.tryAdd(minute, tokens, tokensPerMinute)) {
+            usage.wordsPerDay.subtract(day, words);
+            usage.tokensPerDay.subtract(day, tokens);
+            usage.wordsPerMinute.subtract(minute, words);
+            return Decision.MINUTE_LIMIT;
+        }
+        usage.dirty.set(true);
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * Seconds until the current minute window ends.
+     */
+    public long secondsToNextMinute() {
+        return 60 - (clock.millis() / 1000) % 60;
+    }
+
+    @Scheduled(fixedDelayString = "${quota.flush-interval:30000}")
+    public void flush() {
+        long day = LocalDate.now(clock).toEpochDay();
+        long minute = clock.millis() / 60_000;
+        Instant now = clock.instant();
+        List<UserQuota> changed = new ArrayList<>();
+
+        for (Map.Entry<Long, Usage> entry : usages.entrySet()) {
+            Long chatId = entry.getKey();
+            Usage usage = entry.getValue();
+            if (usage.dirty.getAndSet(false)) {
+                changed.add(new UserQuota(chatId, LocalDate.ofEpochDay(day),
+                        usage.wordsPerDay.get(day), usage.tokensPerDay.get(day), now));
+            } else {
+                // Nothing counted today; drop the user until they come back. Checked again
+                // under the map's lock, which tryAcquire charges under too
+                usages.computeIfPresent(chatId, (id, current) -> !current.dirty.get()
+                        && current.wordsPerDay.get(day) == 0 && current.wordsPerMinute.get(minute) == 0 ? null : current);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            repository.saveAll(changed);
+            log.debug("Saved quota usage of {} users", changed.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * First time this instance sees the user: picks up what was already used today.
+     */
+    private Usage load(Long chatId, long day) {
+        Usage loaded = new Usage();
+        repository.findById(chatId)
+                .filter(saved -> saved.getDay() != null && saved.getDay().toEpochDay() == day)
+                .ifPresent(saved -> {
+                    loaded.wordsPerDay.restore(day, saved.getWordsUsed());
+                    loaded.tokensPerDay.restore(day, saved.getTokensUsed());
+                });
+        return loaded;
+    }
+
+    private Charge reject(Decision decision) {
+        meterRegistry.counter("quota.rejected", "reason", decision.name()).increment();
+        return new Charge(decision, 0, 0, 0, 0);
+    }
+
+    // Prompt side as ChatGPTService estimates it, plus the reply line for each word
+    private static long estimateTokens(List<String> words) {
+        long tokens = 0;
+        for (String word : words) {
+            tokens += word.length() / 4 + 2 + REPLY_TOKENS_PER_WORD;
+        }
+        return tokens;
+    }
+
+    public enum Decision {
+        ALLOWED,
+        TOO_LARGE,
+        MINUTE_LIMIT,
+        DAILY_LIMIT
+    }
+
+    /**
+     * Outcome of {@link #tryAcquire}, with what was charged and to which windows,
+     * so that {@link #refund} takes back exactly that.
+     */
+    public record Charge(Decision decision, long minute, long day, int words, long tokens) {
+    }
+
+    private static final class Usage {
+        private final WindowCounter wordsPerMinute = new WindowCounter();
+        private final WindowCounter tokensPerMinute = new WindowCounter();
+        private final WindowCounter wordsPerDay = new WindowCounter();
+        private final WindowCounter tokensPerDay = new WindowCounter();
+        // Set when the daily counters changed since the last flush
+        private final AtomicBoolean dirty = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.DueCards;
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.model.UserWord;
+import com.example.TelegramWordsBot.repository.UserWordRepository;
+import com.example.TelegramWordsBot.util.Sm2;
+import com.example.TelegramWordsBot.util.WordNormalizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps a local copy of every word written to a user's sheet in {@code user_words}
+ * and runs SM-2 review sessions over it. A session pulls due cards one page at a
+ * time through the {@code (chatId, dueAt)} index, so reviewing never reads the sheet.
+ */
+@Slf4j
+@Service
+public class ReviewService {
+
+    private static final Pattern TRANSLATION_SEPARATORS = Pattern.compile("[,;/]|\\s+або\\s+");
+    private static final Pattern APOSTROPHES = Pattern.compile("[ʼ’`]");
+    private static final Pattern PARENTHESES = Pattern.compile("\\([^)]*\\)");
+    private static final int CORRECT_GRADE = 4;
+    private static final int WRONG_GRADE = 1;
+
+    private final UserWordRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final int pageSize;
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+
+    public ReviewService(
+            UserWordRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${review.page-size:20}") int pageSize
+    ) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.pageSize = Math.max(1, pageSize);
+
+        Gauge.builder("review.sessions", sessions, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Adds written rows as new cards, due right away. A word the user already has
+     * keeps its review state and only gets the new translation.
+     */
+    @Transactional
+    public void saveWords(Long chatId, List<WordData> rows) {
+        Map<String, WordData> byWord = new LinkedHashMap<>();
+        for (WordData row : rows) {
+            byWord.putIfAbsent(WordNormalizer.normalize(row.getOriginal()), row);
+        }
+        if (byWord.isEmpty()) {
+            return;
+        }
+
+        Map<String, UserWord> existing = new HashMap<>();
+        for (UserWord card : repository.findByChatIdAndWordIn(chatId, byWord.keySet())) {
+            existing.put(card.getWord(), card);
+        }
+
+        Instant now = Instant.now();
+        List<UserWord> cards = new ArrayList<>(byWord.size());
+        byWord.forEach((word, row) -> {
+            UserWord card = existing.get(word);
+            if (card == null) {
+                Sm2.Schedule initial = Sm2.Schedule.initial();
+                card = new UserWord();
+                card.setChatId(chatId);
+                card.setWord(word);
+                card.setEase(initial.ease());
+                card.setIntervalDays(initial.intervalDays());
+                card.setRepetitions(initial.repetitions());
+                card.setDueAt(now);
+                card.setCreatedAt(now);
+            }
+            card.setOriginal(row.getOriginal());
+            card.setTranslation(row.getTranslation());
+            card.setTranscription(row.getTranscription());
+            cards.add(card);
+        });
+
+        repository.saveAll(cards);
+        meterRegistry.counter("review.cards.saved").increment(cards.size());
+        log.debug("Saved {} review cards for chatId={}, {} of them new", cards.size(), chatId, cards.size() - existing.size());
+    }
+
+    /**
+     * Starts a session for the chat, replacing any unfinished one.
+     *
+     * @return the first card, or {@code null} if nothing is due
+     */
+    public UserWord start(Long chatId) {
+        Session session = new Session();
+        session.current = nextCard(chatId, session);
+        if (session.current == null) {
+            sessions.remove(chatId);
+            return null;
+        }
+        sessions.put(chatId, session);
+        return session.current;
+    }
+
+    public boolean isReviewing(Long chatId) {
+        return sessions.containsKey(chatId);
+    }
+
+    /**
+     * Grades the answer to the current card and moves to the next one.
+     *
+     * @return the result, or {@code null} if the chat has no session (e.g. after a restart)
+     */
+    public Answer answer(Long chatId, String text) {
+        Session session = sessions.get(chatId);
+        if (session == null || session.current == null) {
+            return null;
+        }
+
+        UserWord card = session.current;
+        boolean correct = matches(card.getTranslation(), text);
+        Sm2.Schedule next = Sm2.next(
+                new Sm2.Schedule(card.getEase(), card.getIntervalDays(), card.getRepetitions()),
+                correct ? CORRECT_GRADE : WRONG_GRADE);
+        card.setEase(next.ease());
+        card.setIntervalDays(next.intervalDays());
+        card.setRepetitions(next.repetitions());
+        card.setDueAt(Instant.now().plus(Duration.ofDays(next.intervalDays())));
+        repository.save(card);
+
+        session.answered++;
+        if (correct) {
+            session.correct++;
+        }
+        meterRegistry.counter("review.answers", "result", correct ? "correct" : "wrong").increment();
+
+        session.current = nextCard(chatId, session);
+        Summary summary = session.summary();
+        if (session.current == null) {
+            sessions.remove(chatId);
+        }
+        return new Answer(card, correct, session.current, summary);
+    }
+
+    /**
+     * Ends the chat's session, if any.
+     */
+    public Summary stop(Long chatId) {
+        Session session = sessions.remove(chatId);
+        return session != null ? session.summary() : new Summary(0, 0);
+    }
+
+    /**
+     * One page of users with due cards, after {@code afterChatId} in chatId order.
+     */
+    public List<DueCards> dueCards(Long afterChatId, int limit) {
+        return repository.findDueCards(Instant.now(), afterChatId, PageRequest.ofSize(limit));
+    }
+
+    private UserWord nextCard(Long chatId, Session session) {
+        if (session.page.isEmpty()) {
+            // Answered cards are due in the future now, so the next page skips them
+            session.page.addAll(repository.findByChatIdAndDueAtLessThanEqualOrderByDueAtAsc(
+                    chatId, Instant.now(), PageRequest.ofSize(pageSize)));
+        }
+        return session.page.poll();
+    }
+
+    /**
+     * An answer is right if it matches the whole translation or any one of its
+     * variants, ignoring case, notes in parentheses and apostrophe style.
+     */
+    static boolean matches(String translation, String answer) {
+        String expected = normalizeAnswer(translation);
+        String given = normalizeAnswer(answer);
+        if (given.isEmpty()) {
+            return false;
+        }
+        if (given.equals(expected)) {
+            return true;
+        }
+        for (String variant : TRANSLATION_SEPARATORS.split(expected)) {
+            if (given.equals(variant.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalizeAnswer(String text) {
+        if (text == null) {
+            return "";
+        }
+        String plain = PARENTHESES.matcher(text).replaceAll(" ");
+        return WordNormalizer.normalize(APOSTROPHES.matcher(plain).replaceAll("'"));
+    }
+
+    public record Answer(UserWord card, boolean correct, UserWord next, Summary summary) {
+    }
+
+    public record Summary(int answered, int correct) {
+    }
+
+    private static final class Session {
+        private final Deque<UserWord> page = new ArrayDeque<>();
+        private UserWord current;
+        private int answered;
+        private int correct;
+
+        Summary summary() {
+            return new Summary(answered, correct);
+        }
+    }
+}
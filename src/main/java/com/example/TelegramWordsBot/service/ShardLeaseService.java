@@ -0,0 +1,344 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.exception.ShardUnavailableException;
+import com.example.TelegramWordsBot.model.ClusterNode;
+import com.example.TelegramWordsBot.model.ShardLease;
+import com.example.TelegramWordsBot.repository.ClusterNodeRepository;
+import com.example.TelegramWordsBot.repository.ShardLeaseRepository;
+import com.example.TelegramWordsBot.util.UserMessageProcessor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the chatId space into {@code cluster.shards} shards and leases each one
+ * to a single node through {@code shard_leases}, so every chat is handled by
+ * exactly one node and the per-chat ordering of {@link UserMessageProcessor}
+ * holds across the cluster. Every {@code cluster.heartbeat-interval} a node
+ * renews its leases, takes free or expired shards up to its fair share and hands
+ * one surplus shard to a node below its share. The shards of a node that stops
+ * heartbeating are taken over once their lease runs out.
+ * <p>
+ * The heartbeat has a thread of its own, so slow scheduled work elsewhere cannot
+ * delay a renewal past the lease. A node that still misses one stops treating
+ * the shard's chats as local as soon as its own view of the lease runs out.
+ * <p>
+ * With {@code cluster.enabled} off every chat is local and nothing is stored.
+ */
+@Slf4j
+@Service
+public class ShardLeaseService {
+
+    private final ShardLeaseRepository leaseRepository;
+    private final ClusterNodeRepository nodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final UserMessageProcessor messageProcessor;
+    private final UserSessionCache sessionCache;
+    private final UserWriteBuffer writeBuffer;
+    private final boolean enabled;
+    private final int shards;
+    private final Duration lease;
+    private final long heartbeatInterval;
+    private final String url;
+    private final String instanceId;
+
+    private final ScheduledExecutorService heartbeatExecutor =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("cluster-heartbeat-"));
+
+    // Shards this node holds, with the lease end it last wrote
+    private final Map<Integer, Instant> owned = new ConcurrentHashMap<>();
+    // Shards this node handed over recently; not taken back on demand until the new owner had time to claim them
+    private final Map<Integer, Instant> released = new ConcurrentHashMap<>();
+    // Every shard's lease as of the last heartbeat
+    private volatile Map<Integer, ShardLease> leases = Map.of();
+
+    public ShardLeaseService(
+            ShardLeaseRepository leaseRepository,
+            ClusterNodeRepository nodeRepository,
+            PlatformTransactionManager transactionManager,
+            UserMessageProcessor messageProcessor,
+            UserSessionCache sessionCache,
+            UserWriteBuffer writeBuffer,
+            WordJobService wordJobService,
+            MeterRegistry meterRegistry,
+            @Value("${cluster.enabled:false}") boolean enabled,
+            @Value("${cluster.shards:64}") int shards,
+            @Value("${cluster.lease:15s}") Duration lease,
+            @Value("${cluster.heartbeat-interval:5000}") long heartbeatInterval,
+            @Value("${cluster.url:}") String url,
+            @Value("${telegram.bot.mode:polling}") String botMode
+    ) {
+        if (enabled && !"webhook".equals(botMode)) {
+            // getUpdates allows a single consumer per bot token
+            throw new IllegalStateException("cluster.enabled requires telegram.bot.mode=webhook");
+        }
+        if (enabled && url.isBlank()) {
+            throw new IllegalStateException("cluster.url must be set to this node's address when cluster.enabled is on");
+        }
+
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.messageProcessor = messageProcessor;
+        this.sessionCache = sessionCache;
+        this.writeBuffer = writeBuffer;
+        this.enabled = enabled;
+        this.shards = shards;
+        this.lease = lease;
+        this.heartbeatInterval = heartbeatInterval;
+        this.url = url;
+        this.instanceId = wordJobService.getInstanceId();
+
+        Gauge.builder("cluster.shards.owned", owned, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardOf(long chatId) {
+        return Math.floorMod(chatId, shards);
+    }
+
+    /**
+     * Number of shards the chatId space is split into for {@link #localShards}.
+     * Outside clustered mode that is a single shard, always local.
+     */
+    public int shardCount() {
+        return enabled ? shards : 1;
+    }
+
+    /**
+     * Shards whose lease this node holds right now, for claiming only local work.
+     */
+    public List<Integer> localShards() {
+        if (!enabled) {
+            return List.of(0);
+        }
+        Instant now = Instant.now();
+        return owned.keySet().stream().filter(shard -> holds(shard, now)).sorted().toList();
+    }
+
+    /**
+     * Whether this node currently handles the chat. Always true outside clustered mode.
+     */
+    public boolean isLocal(Long chatId) {
+        return !enabled || holds(shardOf(chatId), Instant.now());
+    }
+
+    /**
+     * Where updates for the chat have to go. A shard without a live owner is
+     * claimed on the spot rather than at the next heartbeat.
+     *
+     * @return the owner's base URL, or {@code null} if this node handles the chat
+     * @throws ShardUnavailableException if the shard is being handed over
+     */
+    public String ownerUrl(Long chatId) {
+        if (!enabled) {
+            return null;
+        }
+
+        int shard = shardOf(chatId);
+        Instant now = Instant.now();
+        if (holds(shard, now)) {
+            return null;
+        }
+        ShardLease current = leases.get(shard);
+        if (current != null && isLive(current, now) && !instanceId.equals(current.getOwner())) {
+            return current.getOwnerUrl();
+        }
+        if (!recentlyReleased(shard, now) && claim(shard, now)) {
+            return null;
+        }
+        throw new ShardUnavailableException("No live owner for shard " + shard);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void heartbeat() {
+
+        Integer surplus;
+        try {
+            Instant now = Instant.now();
+            surplus = transactionTemplate.execute(status -> balance(now, now.plus(lease)));
+        } catch (RuntimeException e) {
+            // Leases held so far stay valid until they run out; the next heartbeat tries again
+            log.error("Cluster heartbeat failed", e);
+            return;
+        }
+        if (surplus != null) {
+            try {
+                handOver(surplus);
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule for good
+                log.error("Handing over shard {} failed", surplus, e);
+            }
+        }
+    }
+
+    /**
+     * Renews, claims and refreshes the local view in one transaction.
+     *
+     * @return a shard to hand over to an underloaded node, or {@code null}
+     */
+    private Integer balance(Instant now, Instant until) {
+        nodeRepository.save(new ClusterNode(instanceId, url, now));
+        nodeRepository.deleteByHeartbeatAtBefore(now.minus(lease.multipliedBy(10)));
+        leaseRepository.renew(instanceId, url, until);
+
+        Map<Integer, ShardLease> current = new HashMap<>();
+        for (ShardLease shardLease : leaseRepository.findAll()) {
+            current.put(shardLease.getShard(), shardLease);
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            if (!current.containsKey(shard)) {
+                // First start of the cluster; a node inserting the same rows fails this heartbeat and retries
+                current.put(shard, leaseRepository.save(new ShardLease(shard, null, null, null)));
+            }
+        }
+
+        Map<String, Integer> load = new HashMap<>();
+        for (ClusterNode node : nodeRepository.findByHeartbeatAtAfter(now.minus(lease))) {
+            load.put(node.getInstanceId(), 0);
+        }
+        load.put(instanceId, 0);
+        for (ShardLease shardLease : current.values()) {
+            if (isLive(shardLease, now)) {
+                load.merge(shardLease.getOwner(), 1, Integer::sum);
+            }
+        }
+
+        int mine = load.get(instanceId);
+        int ceilShare = (shards + load.size() - 1) / load.size();
+        for (ShardLease shardLease : current.values()) {
+            if (mine >= ceilShare) {
+                break;
+            }
+            int shard = shardLease.getShard();
+            if (!isLive(shardLease, now) && !recentlyReleased(shard, now)
+                    && leaseRepository.claim(shard, instanceId, url, now, until) == 1) {
+                shardLease.setOwner(instanceId);
+                shardLease.setOwnerUrl(url);
+                shardLease.setLeasedUntil(until);
+                mine++;
+            }
+        }
+
+        Set<Integer> held = new HashSet<>();
+        for (ShardLease shardLease : current.values()) {
+            if (instanceId.equals(shardLease.getOwner()) && isLive(shardLease, now)) {
+                held.add(shardLease.getShard());
+                if (owned.put(shardLease.getShard(), until) == null) {
+                    acquired(shardLease.getShard());
+                }
+            }
+        }
+        owned.keySet().retainAll(held);
+        released.values().removeIf(at -> !at.plus(lease).isAfter(now));
+        leases = current;
+
+        int floorShare = shards / load.size();
+        boolean underloaded = load.values().stream().anyMatch(count -> count < floorShare);
+        if (held.size() > floorShare && underloaded) {
+            return held.iterator().next();
+        }
+        return null;
+    }
+
+    /**
+     * Gives a shard back so an underloaded node can claim it. Skipped while one
+     * of its chats still has work queued here.
+     */
+    private void handOver(int shard) {
+        Instant until = owned.remove(shard);
+        if (until == null) {
+            return;
+        }
+        // Updates for the shard get a retryable error from now until the new owner has it
+        released.put(shard, Instant.now());
+        if (messageProcessor.hasActiveChat(chatId -> shardOf(chatId) == shard)) {
+            released.remove(shard);
+            owned.put(shard, until);
+            return;
+        }
+
+        writeBuffer.flush();
+        transactionTemplate.executeWithoutResult(status -> leaseRepository.release(shard, instanceId));
+        log.info("Handed over shard {}", shard);
+    }
+
+    private boolean claim(int shard, Instant now) {
+        Instant until = now.plus(lease);
+        Integer claimed = transactionTemplate.execute(status -> leaseRepository.claim(shard, instanceId, url, now, until));
+        if (claimed == null || claimed != 1) {
+            return false;
+        }
+        owned.put(shard, until);
+        acquired(shard);
+        return true;
+    }
+
+    private void acquired(int shard) {
+        // Another node may have changed these users while it held the shard
+        sessionCache.invalidateIf(chatId -> shardOf(chatId) == shard);
+        log.info("Took shard {}", shard);
+    }
+
+    private boolean holds(int shard, Instant now) {
+        Instant until = owned.get(shard);
+        return until != null && until.isAfter(now);
+    }
+
+    private boolean recentlyReleased(int shard, Instant now) {
+        Instant at = released.get(shard);
+        return at != null && at.plus(lease).isAfter(now);
+    }
+
+    private static boolean isLive(ShardLease shardLease, Instant now) {
+        return shardLease.getOwner() != null && shardLease.getLeasedUntil() != null && shardLease.getLeasedUntil().isAfter(now);
+    }
+
+    /**
+     * Frees this node's shards so the other nodes take them over right away
+     * instead of after the lease runs out.
+     */
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        if (!enabled || owned.isEmpty()) {
+            return;
+        }
+        List<Integer> shardsHeld = List.copyOf(owned.keySet());
+        owned.clear();
+        writeBuffer.flush();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                shardsHeld.forEach(shard -> leaseRepository.release(shard, instanceId));
+                nodeRepository.deleteById(instanceId);
+            });
+            log.info("Released {} shards on shutdown", shardsHeld.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not release shards on shutdown, they expire in {}", lease, e);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.SheetRows;
+import com.example.TelegramWordsBot.dto.SyncStatus;
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.exception.SyncLeaseLostException;
+import com.example.TelegramWordsBot.model.SheetSync;
+import com.example.TelegramWordsBot.repository.SheetSyncRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Imports an existing sheet into the user's review cards, {@code sync.window-rows}
+ * rows per read. Only one window is in memory at a time, and the cursor is saved
+ * after each one. A window imported again after a crash only updates the same
+ * cards, so resuming from the saved cursor is safe. Progress is only written while
+ * this instance still holds the sync's lease.
+ */
+@Slf4j
+@Service
+public class SheetSyncService {
+
+    private final SheetSyncRepository repository;
+    private final GoogleSheetsService googleSheetsService;
+    private final ReviewService reviewService;
+    private final MeterRegistry meterRegistry;
+    private final String instanceId;
+    private final int windowRows;
+    private final Duration lease;
+    private final int maxAttempts;
+
+    // Syncs this instance holds a lease on
+    private final Set<Long> heldSyncs = ConcurrentHashMap.newKeySet();
+
+    public SheetSyncService(
+            SheetSyncRepository repository,
+            GoogleSheetsService googleSheetsService,
+            ReviewService reviewService,
+            WordJobService wordJobService,
+            MeterRegistry meterRegistry,
+            @Value("${sync.window-rows:500}") int windowRows,
+            @Value("${sync.lease:60s}") Duration lease,
+            @Value("${sync.max-attempts:3}") int maxAttempts
+    ) {
+        this.repository = repository;
+        this.googleSheetsService = googleSheetsService;
+        this.reviewService = reviewService;
+        this.meterRegistry = meterRegistry;
+        this.instanceId = wordJobService.getInstanceId();
+        this.windowRows = windowRows;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+
+        Gauge.builder("sync.held", heldSyncs, Set::size).register(meterRegistry);
+    }
+
+    /**
+     * Leases the chat's sync to this instance. An unfinished sync of the same sheet
+     * continues from its cursor; otherwise the sheet is read from the first row.
+     *
+     * @return the leased sync, or {@code null} if one is already running
+     */
+    @Transactional
+    public SheetSync start(Long chatId, String sheetId) {
+        Instant now = Instant.now();
+        SheetSync sync = repository.findById(chatId).orElse(null);
+        if (sync != null && sync.getStatus() == SyncStatus.RUNNING
+                && sync.getLockedUntil() != null && sync.getLockedUntil().isAfter(now)) {
+            return null;
+        }
+
+        if (sync == null) {
+            sync = new SheetSync();
+            sync.setChatId(chatId);
+        }
+        boolean resume = sync.getStatus() != null && sync.getStatus() != SyncStatus.DONE
+                && sheetId.equals(sync.getSheetId());
+        if (!resume) {
+            sync.setSheetId(sheetId);
+            sync.setNextRow(1);
+            sync.setRowsImported(0);
+            sync.setStartedAt(now);
+        }
+        sync.setAttempts(1);
+        sync.setLastError(null);
+        sync.setLockedBy(instanceId);
+        sync.setStatus(SyncStatus.RUNNING);
+        sync.setLockedUntil(now.plus(lease));
+        sync.setUpdatedAt(now);
+        repository.save(sync);
+        heldSyncs.add(chatId);
+
+        log.info("{} sync of spreadsheet {} for chatId={} at row {}",
+                resume ? "Resuming" : "Starting", sheetId, chatId, sync.getNextRow());
+        return sync;
+    }
+
+    /**
+     * Imports the next window of rows and moves the cursor past it.
+     *
+     * @return {@code true} once the window reached the end of the sheet's grid
+     * @throws SyncLeaseLostException if another instance has taken the sync over
+     */
+    public boolean importWindow(SheetSync sync) {
+        SheetRows window = googleSheetsService.readRows(sync.getSheetId(), sync.getNextRow(), windowRows);
+        List<WordData> words = window.words();
+        if (sync.getNextRow() == 1 && !words.isEmpty() && isHeader(words.get(0))) {
+            words = words.subList(1, words.size());
+        }
+        if (!words.isEmpty()) {
+            saveWords(sync.getChatId(), words);
+        }
+
+        boolean finished = window.last();
+        sync.setNextRow(sync.getNextRow() + windowRows);
+        sync.setRowsImported(sync.getRowsImported() + words.size());
+        if (finished) {
+            sync.setLockedBy(null);
+            saveHeld(sync, SyncStatus.DONE, null);
+            log.info("Sync of spreadsheet {} for chatId={} done, {} rows imported",
+                    sync.getSheetId(), sync.getChatId(), sync.getRowsImported());
+        } else {
+            saveHeld(sync, SyncStatus.RUNNING, Instant.now().plus(lease));
+        }
+        meterRegistry.counter("sync.rows").increment(words.size());
+        return finished;
+    }
+
+    /**
+     * Stops the sync at its cursor; a later {@code /sync} of the same sheet resumes it.
+     */
+    @Transactional
+    public void markFailed(SheetSync sync, Exception error) {
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        sync.setLastError(message.length() > 255 ? message.substring(0, 255) : message);
+        sync.setLockedBy(null);
+        saveIfHeld(sync, SyncStatus.FAILED, null);
+    }
+
+    /**
+     * Gives up this instance's lease, so the next claim resumes the sync. Being
+     * stopped or handed on is not the sync's fault, so the claim's attempt is taken back.
+     */
+    @Transactional
+    public void release(SheetSync sync) {
+        sync.setAttempts(Math.max(0, sync.getAttempts() - 1));
+        sync.setLockedBy(null);
+        saveIfHeld(sync, SyncStatus.RUNNING, null);
+    }
+
+    /**
+     * Takes over running syncs with an expired lease, of chats in the given shards
+     * out of {@code shardCount}. Syncs already claimed
+     * {@code sync.max-attempts} times are failed instead.
+     */
+    @Transactional
+    public List<SheetSync> claimExpired(int shardCount, Collection<Integer> shards, int limit) {
+        Instant now = Instant.now();
+        List<SheetSync> claimed = new ArrayList<>();
+
+        for (SheetSync sync : repository.lockExpired(now, shardCount, shards, limit)) {
+            sync.setAttempts(sync.getAttempts() + 1);
+            sync.setUpdatedAt(now);
+            if (sync.getAttempts() > maxAttempts) {
+                log.warn("Sync for chatId={} abandoned after {} attempts", sync.getChatId(), maxAttempts);
+                sync.setStatus(SyncStatus.FAILED);
+                sync.setLastError("Lease expired " + maxAttempts + " times");
+                sync.setLockedBy(null);
+                sync.setLockedUntil(null);
+                continue;
+            }
+            log.info("Claimed sync for chatId={} from {} at row {}", sync.getChatId(), sync.getLockedBy(), sync.getNextRow());
+            sync.setLockedBy(instanceId);
+            sync.setLockedUntil(now.plus(lease));
+            heldSyncs.add(sync.getChatId());
+            claimed.add(sync);
+        }
+        return claimed;
+    }
+
+    @Scheduled(fixedDelayString = "${sync.heartbeat-interval:20000}")
+    @Transactional
+    public void renewLeases() {
+        if (heldSyncs.isEmpty()) {
+            return;
+        }
+        int renewed = repository.renewLeases(List.copyOf(heldSyncs), instanceId, Instant.now().plus(lease));
+        log.debug("Renewed leases on {} of {} held syncs", renewed, heldSyncs.size());
+    }
+
+    // A word job of the same chat can insert one of the cards between the lookup and
+    // the insert; the retry finds that card and updates it instead
+    private void saveWords(Long chatId, List<WordData> words) {
+        try {
+            reviewService.saveWords(chatId, words);
+        } catch (DataIntegrityViolationException e) {
+            log.info("Review cards for chatId={} changed during the sync, saving the window again", chatId);
+            reviewService.saveWords(chatId, words);
+        }
+    }
+
+    private void saveHeld(SheetSync sync, SyncStatus status, Instant lockedUntil) {
+        if (!saveIfHeld(sync, status, lockedUntil)) {
+            throw new SyncLeaseLostException("Sync for chatId=" + sync.getChatId() + " was taken over by another instance");
+        }
+    }
+
+    // Writes the sync unless another instance has taken it over meanwhile
+    private boolean saveIfHeld(SheetSync sync, SyncStatus status, Instant lockedUntil) {
+        sync.setStatus(status);
+        sync.setLockedUntil(lockedUntil);
+        sync.setUpdatedAt(Instant.now());
+        boolean held = repository.saveIfHeld(sync, instanceId) > 0;
+        if (!held) {
+            log.warn("Sync for chatId={} was taken over by another instance at row {}", sync.getChatId(), sync.getNextRow());
+        }
+        // Finished, failed and released syncs are no longer held either
+        if (!held || sync.getLockedBy() == null) {
+            heldSyncs.remove(sync.getChatId());
+        }
+        return held;
+    }
+
+    // The header row this bot writes into a new sheet
+    private static boolean isHeader(WordData row) {
+        return "Original".equalsIgnoreCase(row.getOriginal()) && "Translation".equalsIgnoreCase(row.getTranslation());
+    }
+}
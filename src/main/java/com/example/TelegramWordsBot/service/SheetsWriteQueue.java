@@ -0,0 +1,244 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.exception.GoogleSheetsException;
+import com.example.TelegramWordsBot.util.TokenBucket;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Asynchronous write pipeline for Google Sheets. Rows are queued per spreadsheet,
+ * and each flush writes everything pending for a spreadsheet in one append. A token
+ * bucket keeps the shared service account under its per-minute quota; each append
+ * is charged for the API requests it makes, so a spreadsheet whose metadata is not
+ * cached yet costs two tokens. 429/503 responses are retried with exponential backoff. Appends run on a pool of their
+ * own, at most one at a time per spreadsheet, so a slow spreadsheet delays neither
+ * the others nor the scheduler. When the quota runs out mid-pass, the next pass
+ * starts after the last spreadsheet served, so every spreadsheet gets its turn.
+ */
+@Slf4j
+@Service
+public class SheetsWriteQueue {
+
+    private final GoogleSheetsService googleSheetsService;
+    private final TokenBucket rateLimiter;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, PendingSheet> pending = new ConcurrentHashMap<>();
+    private final ExecutorService writeExecutor;
+
+    // Last spreadsheet served before the quota ran out; only touched by flush()
+    private String resumeAfter;
+
+    public SheetsWriteQueue(
+            GoogleSheetsService googleSheetsService,
+            @Value("${google.sheets.write-queue.requests-per-minute:50}") int requestsPerMinute,
+            @Value("${google.sheets.write-queue.max-attempts:5}") int maxAttempts,
+            @Value("${google.sheets.write-queue.initial-backoff:1s}") Duration initialBackoff,
+            @Value("${google.sheets.write-queue.max-backoff:1m}") Duration maxBackoff,
+            @Value("${google.sheets.write-queue.threads:4}") int threads,
+            MeterRegistry meterRegistry
+    ) {
+        this.googleSheetsService = googleSheetsService;
+        this.rateLimiter = new TokenBucket(requestsPerMinute, Duration.ofMinutes(1));
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.meterRegistry = meterRegistry;
+        this.writeExecutor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("sheets-write-"));
+
+        Gauge.builder("sheets.write.queue.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Queues rows for a spreadsheet. The future completes once the rows are written,
+     * or exceptionally with {@link GoogleSheetsException} if they could not be.
+     * Cancelling the future drops the rows if their append has not started yet.
+     */
+    public CompletableFuture<Void> enqueue(String sheetId, List<WordData> words) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (words.isEmpty()) {
+            future.complete(null);
+            return future;
+        }
+
+        PendingWrite write = new PendingWrite(words, future);
+        pending.compute(sheetId, (id, sheet) -> {
+            PendingSheet target = sheet != null ? sheet : new PendingSheet();
+            target.add(write);
+            return target;
+        });
+        log.debug("Queued {} words for spreadsheet {}", words.size(), sheetId);
+        return future;
+    }
+
+    public int getPendingSheets() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${google.sheets.write-queue.flush-interval:500}")
+    public void flush() {
+        List<String> sheetIds = new ArrayList<>(pending.keySet());
+        Collections.sort(sheetIds);
+        int start = 0;
+        if (resumeAfter != null) {
+            while (start < sheetIds.size() && sheetIds.get(start).compareTo(resumeAfter) <= 0) {
+                start++;
+            }
+        }
+        resumeAfter = null;
+
+        for (int i = 0; i < sheetIds.size(); i++) {
+            String sheetId = sheetIds.get((start + i) % sheetIds.size());
+            PendingSheet sheet = pending.get(sheetId);
+            if (sheet == null) {
+                continue;
+            }
+
+            if (sheet.isIdle()) {
+                // Removal and enqueue both go through the map, so no write can slip in between
+                pending.computeIfPresent(sheetId, (id, current) -> current.isIdle() ? null : current);
+                continue;
+            }
+            if (!sheet.isReady()) {
+                continue;
+            }
+            if (!rateLimiter.tryAcquire(googleSheetsService.requestsPerWrite(sheetId))) {
+                log.debug("Sheets write quota exhausted, {} spreadsheets waiting", pending.size());
+                // Sheets from this one on go first next time
+                resumeAfter = sheetIds.get((start + i - 1 + sheetIds.size()) % sheetIds.size());
+                return;
+            }
+
+            List<PendingWrite> batch = sheet.start();
+            if (batch.isEmpty()) {
+                sheet.finish();
+                continue;
+            }
+            writeExecutor.execute(() -> write(sheetId, sheet, batch));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeExecutor.shutdown();
+    }
+
+    private void write(String sheetId, PendingSheet sheet, List<PendingWrite> batch) {
+        try {
+            append(sheetId, sheet, batch);
+        } finally {
+            sheet.finish();
+        }
+    }
+
+    private void append(String sheetId, PendingSheet sheet, List<PendingWrite> batch) {
+        List<WordData> rows = new ArrayList<>();
+        batch.forEach(write -> rows.addAll(write.words()));
+
+        try {
+            googleSheetsService.writeWords(rows, sheetId);
+            sheet.resetBackoff();
+            meterRegistry.summary("sheets.write.queue.coalesced").record(batch.size());
+            batch.forEach(write -> write.future().complete(null));
+            log.debug("Flushed {} queued writes ({} rows) to spreadsheet {}", batch.size(), rows.size(), sheetId);
+
+        } catch (GoogleSheetsException e) {
+            int attempt = sheet.nextAttempt();
+            if (e.isRetryable() && attempt < maxAttempts) {
+                Duration backoff = backoff(attempt);
+                log.warn("Spreadsheet {} throttled (HTTP {}), retrying in {} (attempt {}/{})",
+                        sheetId, e.getStatusCode(), backoff, attempt, maxAttempts);
+                meterRegistry.counter("sheets.write.queue.retries", "status", String.valueOf(e.getStatusCode())).increment();
+                sheet.retryLater(batch, backoff);
+                return;
+            }
+            sheet.resetBackoff();
+            batch.forEach(write -> write.future().completeExceptionally(e));
+
+        } catch (RuntimeException e) {
+            sheet.resetBackoff();
+            batch.forEach(write -> write.future().completeExceptionally(e));
+        }
+    }
+
+    private Duration backoff(int attempt) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private record PendingWrite(List<WordData> words, CompletableFuture<Void> future) {
+    }
+
+    private static class PendingSheet {
+        private final List<PendingWrite> writes = new ArrayList<>();
+        private long notBefore;
+        private int attempts;
+        private boolean inFlight;
+
+        synchronized void add(PendingWrite write) {
+            writes.add(write);
+        }
+
+        // Nothing queued and no append running, so the entry can go
+        synchronized boolean isIdle() {
+            return writes.isEmpty() && !inFlight;
+        }
+
+        synchronized boolean isReady() {
+            return !inFlight && !writes.isEmpty() && System.currentTimeMillis() >= notBefore;
+        }
+
+        /**
+         * Takes the queued writes for an append, leaving out cancelled ones.
+         */
+        synchronized List<PendingWrite> start() {
+            List<PendingWrite> drained = new ArrayList<>(writes.size());
+            for (PendingWrite write : writes) {
+                if (!write.future().isDone()) {
+                    drained.add(write);
+                }
+            }
+            writes.clear();
+            inFlight = true;
+            return drained;
+        }
+
+        synchronized void finish() {
+            inFlight = false;
+        }
+
+        synchronized void retryLater(List<PendingWrite> batch, Duration backoff) {
+            writes.addAll(0, batch);
+            notBefore = System.currentTimeMillis() + backoff.toMillis();
+        }
+
+        synchronized int nextAttempt() {
+            return ++attempts;
+        }
+
+        synchronized void resetBackoff() {
+            attempts = 0;
+            notBefore = 0;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One link of the translation chain used by {@link TranslationService}. Providers are
+ * asked in {@code @Order}; each one answers what it can and leaves the rest to the
+ * next one.
+ */
+public interface TranslationProvider {
+
+    String getName();
+
+    /**
+     * @param words distinct words as the user typed them
+     * @return translations keyed by {@link com.example.TelegramWordsBot.util.WordNormalizer#normalize(String)};
+     * words the provider does not know are left out
+     */
+    Map<String, WordData> translate(List<String> words);
+
+    /**
+     * The words a call to {@link #translate(List)} would have to pay for. Providers
+     * that answer part of the words from a cache leave those out.
+     */
+    default List<String> uncached(List<String> words) {
+        return words;
+    }
+
+    /**
+     * Same as {@link #translate(List)}, but emits each word as soon as it is ready.
+     * Rows are already spelled as the user typed them.
+     */
+    default Flux<WordData> stream(List<String> words) {
+        return Flux.defer(() -> Flux.fromIterable(TranslationService.rows(words, translate(words))));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.util.WordNormalizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.*;
+
+/**
+ * Translates a word list through the chain of {@link TranslationProvider}s: each
+ * provider only gets the words the ones before it could not answer, and the
+ * answers are merged back in the order the user wrote the words.
+ */
+@Slf4j
+@Service
+public class TranslationService {
+
+    private final List<TranslationProvider> providers;
+    private final MeterRegistry meterRegistry;
+
+    public TranslationService(List<TranslationProvider> providers, MeterRegistry meterRegistry) {
+        this.providers = List.copyOf(providers);
+        this.meterRegistry = meterRegistry;
+        log.info("Translation providers: {}", this.providers.stream().map(TranslationProvider::getName).toList());
+    }
+
+    public List<WordData> processWords(String wordsList) {
+        List<String> words = WordNormalizer.split(wordsList);
+        Map<String, WordData> known = new HashMap<>();
+        List<WordData> extra = new ArrayList<>();
+
+        List<String> pending = words;
+        for (TranslationProvider provider : providers) {
+            if (pending.isEmpty()) {
+                break;
+            }
+            pending = resolve(provider, pending, known, extra);
+        }
+
+        for (String word : pending) {
+            log.warn("No translation returned for word: {}", word);
+        }
+        List<WordData> result = rows(words, known);
+        result.addAll(extra);
+        return result;
+    }
+
+    /**
+     * Streaming variant of {@link #processWords(String)}. Words answered by the
+     * providers before the last one are emitted first; the last provider streams
+     * the rest as they complete.
+     */
+    public Flux<WordData> streamWords(String wordsList) {
+        return Flux.defer(() -> {
+            List<String> words = WordNormalizer.split(wordsList);
+            Map<String, WordData> known = new HashMap<>();
+            List<WordData> extra = new ArrayList<>();
+
+            List<String> pending = words;
+            for (TranslationProvider provider : providers.subList(0, providers.size() - 1)) {
+                if (pending.isEmpty()) {
+                    break;
+                }
+                pending = resolve(provider, pending, known, extra);
+            }
+
+            List<WordData> resolved = rows(words, known);
+            resolved.addAll(extra);
+            Flux<WordData> rest = pending.isEmpty() ? Flux.empty() : providers.get(providers.size() - 1).stream(pending);
+            return Flux.concat(Flux.fromIterable(resolved), rest);
+        });
+    }
+
+    /**
+     * The words the last provider, the model, would be asked for once the ones
+     * before it answered what they know and its own cache answered the rest it
+     * can. Only these are charged to the user's quota.
+     */
+    public List<String> modelBound(List<String> words) {
+        List<String> pending = words;
+        for (TranslationProvider provider : providers.subList(0, providers.size() - 1)) {
+            if (pending.isEmpty()) {
+                break;
+            }
+            Map<String, WordData> found = provider.translate(pending);
+            pending = pending.stream()
+                    .filter(word -> !found.containsKey(WordNormalizer.normalize(word)))
+                    .toList();
+        }
+        return pending.isEmpty() ? pending : providers.get(providers.size() - 1).uncached(pending);
+    }
+
+    /**
+     * Rows for the words that have a translation, in input order and spelled as the
+     * user typed them.
+     */
+    static List<WordData> rows(List<String> words, Map<String, WordData> translations) {
+        List<WordData> rows = new ArrayList<>(words.size());
+        for (String word : words) {
+            WordData data = translations.get(WordNormalizer.normalize(word));
+            if (data != null) {
+                rows.add(data.withOriginal(word));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Asks one provider for the pending words and returns the ones it left open.
+     * Answers for words that were not asked for go to {@code extra}.
+     */
+    private List<String> resolve(TranslationProvider provider, List<String> pending,
+                                 Map<String, WordData> known, List<WordData> extra) {
+        Map<String, WordData> found = provider.translate(pending);
+
+        Set<String> asked = new HashSet<>();
+        for (String word : pending) {
+            asked.add(WordNormalizer.normalize(word));
+        }
+        int answered = 0;
+        for (Map.Entry<String, WordData> entry : found.entrySet()) {
+            if (asked.contains(entry.getKey())) {
+                known.put(entry.getKey(), entry.getValue());
+                answered++;
+            } else {
+                extra.add(entry.getValue());
+            }
+        }
+
+        meterRegistry.counter("translation.words", "provider", provider.getName()).increment(answered);
+        log.debug("{} answered {} of {} words", provider.getName(), answered, pending.size());
+        return pending.stream()
+                .filter(word -> !known.containsKey(WordNormalizer.normalize(word)))
+                .toList();
+    }
+}
@@ -3,63 +3,127 @@ package com.example.TelegramWordsBot.service;
 import com.example.TelegramWordsBot.dto.UserState;
 import com.example.TelegramWordsBot.model.User;
 import com.example.TelegramWordsBot.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Users are read through {@link UserSessionCache} and written through
+ * {@link UserWriteBuffer}, whose flush runs in its own transaction. None of these
+ * methods reaches the database except for a cache miss in {@link #findOrCreate},
+ * which is a single read, so they open no transaction of their own.
+ */
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+    private final UserSessionCache userCache;
+    private final UserWriteBuffer writeBuffer;
 
     @Value("${bot.secret_key}")
     private String secretKey;
 
-    @Transactional
+    private final Map<String, Boolean> verifiedAuthKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Not transactional on purpose: a cached user is returned without touching the
+     * database. Changes still waiting in {@link UserWriteBuffer} are newer than the
+     * table, so they are checked before it, and a chat always reads its own writes.
+     * A new user is only buffered, not inserted right away.
+     */
     public User findOrCreate(Long chatId) {
-        return userRepository.findByChatId(chatId)
-                .orElseGet(() ->
-                        userRepository.save(
-                                new User(chatId, UserState.WAITING_FOR_AUTH_KEY, null, null)
-                        )
-                );
+        User cached = userCache.get(chatId);
+        if (cached != null) {
+            meterRegistry.counter("users.cache.requests", "result", "hit").increment();
+            return cached;
+        }
+        meterRegistry.counter("users.cache.requests", "result", "miss").increment();
+
+        User user = timed("findOrCreate", () -> {
+            User buffered = writeBuffer.get(chatId);
+            if (buffered != null) {
+                return buffered;
+            }
+            return userRepository.findByChatId(chatId).orElseGet(() -> {
+                User created = new User(chatId, UserState.WAITING_FOR_AUTH_KEY, null, null);
+                writeBuffer.enqueue(created);
+                return created;
+            });
+        });
+        userCache.put(user);
+        return user;
     }
 
-    @Transactional
     public void setState(Long chatId, UserState state) {
-        User user = findOrCreate(chatId);
-        user.setUserState(state);
-        userRepository.save(user);
+        timed("setState", () -> {
+            User user = findOrCreate(chatId);
+            user.setUserState(state);
+            return save(user);
+        });
     }
 
-    @Transactional
     public User updateUser(User user) {
-        return userRepository.save(user);
+        return timed("updateUser", () -> save(user));
     }
 
-    @Transactional
     public boolean authorize(Long chatId, String inputKey) {
-        User user = findOrCreate(chatId);
+        return timed("authorize", () -> {
+            User user = findOrCreate(chatId);
 
-        if (inputKey.equals(secretKey)) {
-            user.setAuthKey(passwordEncoder.encode(inputKey));
-            user.setUserState(UserState.IDLE);
-            userRepository.save(user);
-            return true;
-        }
+            if (inputKey.equals(secretKey)) {
+                String authKey = passwordEncoder.encode(inputKey);
+                verifiedAuthKeys.put(authKey, true);
+                user.setAuthKey(authKey);
+                user.setUserState(UserState.IDLE);
+                save(user);
+                return true;
+            }
 
-        return false;
+            return false;
+        });
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Checked on every message, so the BCrypt comparison runs only once per stored
+     * hash and its result is remembered. A new {@code bot.secret_key} takes effect
+     * on restart, which empties the map, so every old hash is re-checked and fails.
+     */
     public boolean isAuthorized(User user) {
-        return user.getAuthKey() != null
-                && passwordEncoder.matches(secretKey, user.getAuthKey());
+        return timed("isAuthorized", () -> user.getAuthKey() != null
+                && verifiedAuthKeys.computeIfAbsent(user.getAuthKey(),
+                        authKey -> passwordEncoder.matches(secretKey, authKey)));
     }
-}
 
+    /**
+     * Updates the cached copy right away; the row is written by the next flush of
+     * {@link UserWriteBuffer}.
+     */
+    private User save(User user) {
+        userCache.put(user);
+        writeBuffer.enqueue(user);
+        return user;
+    }
+
+    private <T> T timed(String method, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = action.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(meterRegistry.timer("user.service.calls", "method", method, "outcome", outcome));
+        }
+    }
+}
 
@@ -0,0 +1,117 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.model.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory copy of recently active users, keyed by chatId. {@link UserService}
+ * writes through it, so a known user's messages need no database reads. Entries
+ * idle longer than {@code users.cache.idle-timeout} are evicted, the size is
+ * bounded by {@code users.cache.max-size}, and the whole cache is dropped every
+ * {@code users.cache.refresh-interval} to pick up changes made outside the bot.
+ * <p>
+ * The cache keeps its own copy of each user and hands out copies, so a caller
+ * changing a user (a chat worker, or a job resumed on another thread) never races
+ * with another reader; a change is only seen by others once it is {@link #put}.
+ */
+@Slf4j
+@Component
+public class UserSessionCache {
+
+    private final Map<Long, CachedUser> users = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final Duration idleTimeout;
+
+    public UserSessionCache(
+            @Value("${users.cache.max-size:10000}") int maxSize,
+            @Value("${users.cache.idle-timeout:30m}") Duration idleTimeout,
+            MeterRegistry meterRegistry
+    ) {
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+
+        Gauge.builder("users.cache.size", users, Map::size).register(meterRegistry);
+    }
+
+    public User get(Long chatId) {
+        CachedUser cached = users.get(chatId);
+        if (cached == null) {
+            return null;
+        }
+        cached.touch();
+        return cached.user().copy();
+    }
+
+    public void put(User user) {
+        users.put(user.getChatId(), new CachedUser(user.copy()));
+        if (users.size() > maxSize) {
+            evictLeastRecentlyUsed(users.size() - maxSize);
+        }
+    }
+
+    public void invalidate(Long chatId) {
+        users.remove(chatId);
+    }
+
+    public void invalidateIf(LongPredicate filter) {
+        users.keySet().removeIf(filter::test);
+    }
+
+    @Scheduled(fixedDelayString = "${users.cache.sweep-interval:60000}")
+    public void evictIdle() {
+        long threshold = System.nanoTime() - idleTimeout.toNanos();
+        int before = users.size();
+        users.values().removeIf(cached -> cached.lastAccess() < threshold);
+        if (users.size() < before) {
+            log.debug("Evicted {} idle users from cache", before - users.size());
+        }
+    }
+
+    @Scheduled(fixedRateString = "${users.cache.refresh-interval:3600000}",
+            initialDelayString = "${users.cache.refresh-interval:3600000}")
+    public void invalidateAll() {
+        log.debug("Dropping {} cached users", users.size());
+        users.clear();
+    }
+
+    private void evictLeastRecentlyUsed(int count) {
+        users.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(users::remove);
+    }
+
+    private static final class CachedUser {
+        private final User user;
+        private volatile long lastAccess = System.nanoTime();
+
+        private CachedUser(User user) {
+            this.user = user;
+        }
+
+        User user() {
+            return user;
+        }
+
+        long lastAccess() {
+            return lastAccess;
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+    }
+}
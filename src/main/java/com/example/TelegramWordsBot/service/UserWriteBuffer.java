@@ -0,0 +1,127 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.model.User;
+import com.example.TelegramWordsBot.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind buffer for {@code users} rows. Each change is kept as a snapshot per
+ * chatId, where a later change replaces an earlier one, and all buffered users are
+ * written in one transaction every {@code users.write-behind.flush-interval} and
+ * on shutdown. Existing rows are loaded with a single query and updated in place,
+ * so Hibernate sends the updates and inserts as JDBC batches. Until a change is
+ * committed, {@link #get} returns it, so a chat always reads its own writes.
+ */
+@Slf4j
+@Component
+public class UserWriteBuffer {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, User> pending = new ConcurrentHashMap<>();
+    // Taken out of pending but not committed yet; still newer than the table
+    private final Map<Long, User> writing = new ConcurrentHashMap<>();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public UserWriteBuffer(
+            UserRepository userRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("users.writes.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    public void enqueue(User user) {
+        pending.put(user.getChatId(), user.copy());
+    }
+
+    /**
+     * The latest change for a chat that is not written yet, or {@code null}.
+     */
+    public User get(Long chatId) {
+        User user = pending.get(chatId);
+        if (user == null) {
+            user = writing.get(chatId);
+        }
+        return user != null ? user.copy() : null;
+    }
+
+    @Scheduled(fixedDelayString = "${users.write-behind.flush-interval:500}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<Long, User> batch = new HashMap<>();
+        for (Map.Entry<Long, User> entry : pending.entrySet()) {
+            // Only take the snapshot seen here; a newer one stays for the next flush
+            writing.put(entry.getKey(), entry.getValue());
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            } else {
+                writing.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+            meterRegistry.counter("users.writes.flushed").increment(batch.size());
+            log.debug("Wrote {} buffered users", batch.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} buffered users, retrying on next flush", batch.size(), e);
+            meterRegistry.counter("users.writes.failed").increment(batch.size());
+            batch.forEach(pending::putIfAbsent);
+        } finally {
+            batch.forEach(writing::remove);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            log.warn("{} user changes were not written before shutdown", pending.size());
+        }
+    }
+
+    private void write(Map<Long, User> batch) {
+        Map<Long, User> existing = userRepository.findAllById(batch.keySet()).stream()
+                .collect(Collectors.toMap(User::getChatId, Function.identity()));
+
+        batch.forEach((chatId, user) -> {
+            User managed = existing.get(chatId);
+            if (managed == null) {
+                entityManager.persist(user.copy());
+            } else {
+                managed.setUserState(user.getUserState());
+                managed.setSheetId(user.getSheetId());
+                managed.setAuthKey(user.getAuthKey());
+            }
+        });
+    }
+}
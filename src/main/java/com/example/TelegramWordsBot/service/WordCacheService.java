@@ -0,0 +1,168 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.model.WordTranslation;
+import com.example.TelegramWordsBot.repository.WordTranslationRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of translated words: a bounded LRU map with TTL in memory
+ * and the {@code word_translations} table behind it, whose rows expire after
+ * {@code words.cache.db-ttl}. Keys are normalized words.
+ */
+@Slf4j
+@Service
+public class WordCacheService {
+
+    // Longest key the word column holds
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final WordTranslationRepository repository;
+    private final Duration ttl;
+    private final Duration dbTtl;
+    private final Map<String, CachedWord> memory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public WordCacheService(
+            WordTranslationRepository repository,
+            @Value("${words.cache.max-size:10000}") int maxSize,
+            @Value("${words.cache.ttl:24h}") Duration ttl,
+            @Value("${words.cache.db-ttl:90d}") Duration dbTtl,
+            MeterRegistry meterRegistry
+    ) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.dbTtl = dbTtl;
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedWord> eldest) {
+                return size() > maxSize;
+            }
+        });
+
+        FunctionCounter.builder("words.cache.requests", hits, AtomicLong::get).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("words.cache.requests", misses, AtomicLong::get).tag("result", "miss").register(meterRegistry);
+        Gauge.builder("words.cache.size", memory, Map::size).register(meterRegistry);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, WordData> getAll(Collection<String> keys) {
+        Map<String, WordData> found = lookup(keys);
+        hits.addAndGet(found.size());
+        misses.addAndGet(keys.size() - found.size());
+        log.debug("Word cache lookup: {} hits, {} misses", found.size(), keys.size() - found.size());
+        return found;
+    }
+
+    /**
+     * Keys that have a live translation, without counting as cache requests. Rows
+     * found in the table are kept in memory for the lookup that usually follows.
+     */
+    @Transactional(readOnly = true)
+    public Set<String> cachedKeys(Collection<String> keys) {
+        return lookup(keys).keySet();
+    }
+
+    private Map<String, WordData> lookup(Collection<String> keys) {
+        Map<String, WordData> found = new HashMap<>();
+        Set<String> notInMemory = new HashSet<>();
+        Instant now = Instant.now();
+
+        for (String key : keys) {
+            CachedWord cached = memory.get(key);
+            if (cached != null && cached.expiresAt().isAfter(now)) {
+                found.put(key, copyOf(cached.data()));
+            } else {
+                if (cached != null) {
+                    memory.remove(key);
+                }
+                notInMemory.add(key);
+            }
+        }
+
+        if (!notInMemory.isEmpty()) {
+            for (WordTranslation translation : repository.findCreatedSince(notInMemory, now.minus(dbTtl))) {
+                WordData data = toWordData(translation);
+                // Not kept in memory past the row's own expiry
+                Instant rowExpiresAt = translation.getCreatedAt().plus(dbTtl);
+                Instant expiresAt = rowExpiresAt.isBefore(now.plus(ttl)) ? rowExpiresAt : now.plus(ttl);
+                memory.put(translation.getWord(), new CachedWord(data, expiresAt));
+                found.put(translation.getWord(), copyOf(data));
+            }
+        }
+        return found;
+    }
+
+    @Transactional
+    public void putAll(Map<String, WordData> words) {
+        if (words.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        List<WordTranslation> entities = new ArrayList<>(words.size());
+        words.forEach((key, data) -> {
+            memory.put(key, new CachedWord(copyOf(data), now.plus(ttl)));
+            if (key.length() <= MAX_KEY_LENGTH) {
+                entities.add(new WordTranslation(key, data.getTranslation(), data.getTranscription(), now));
+            }
+        });
+
+        repository.saveAll(entities);
+        log.debug("Cached {} new words", entities.size());
+    }
+
+    @Scheduled(fixedDelayString = "${words.cache.cleanup-interval:3600000}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = repository.deleteCreatedBefore(Instant.now().minus(dbTtl));
+        if (deleted > 0) {
+            log.info("Deleted {} cached words older than {}", deleted, dbTtl);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int getMemorySize() {
+        return memory.size();
+    }
+
+    private static WordData toWordData(WordTranslation translation) {
+        WordData data = new WordData();
+        data.setOriginal(translation.getWord());
+        data.setTranslation(translation.getTranslation());
+        data.setTranscription(translation.getTranscription());
+        return data;
+    }
+
+    private static WordData copyOf(WordData source) {
+        WordData copy = new WordData();
+        copy.setOriginal(source.getOriginal());
+        copy.setTranslation(source.getTranslation());
+        copy.setTranscription(source.getTranscription());
+        return copy;
+    }
+
+    private record CachedWord(WordData data, Instant expiresAt) {
+    }
+}
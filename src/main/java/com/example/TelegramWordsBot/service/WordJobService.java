@@ -0,0 +1,340 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.JobStatus;
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.model.User;
+import com.example.TelegramWordsBot.model.WordJob;
+import com.example.TelegramWordsBot.repository.WordJobRepository;
+import com.example.TelegramWordsBot.util.WordNormalizer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durable record of accepted word lists in {@code word_jobs}. A job is leased to the
+ * instance working on it, and the lease is renewed while the instance is alive. Jobs
+ * whose lease ran out (the instance crashed or was stopped mid-batch) are claimed
+ * again with {@code FOR UPDATE SKIP LOCKED}, so any running instance can resume them.
+ */
+@Slf4j
+@Service
+public class WordJobService {
+
+    private static final TypeReference<List<WordData>> WORD_LIST = new TypeReference<>() {};
+
+    private final WordJobRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration retention;
+    private final MeterRegistry meterRegistry;
+    private final String instanceId;
+
+    // Jobs this instance holds a lease on
+    private final Set<Long> heldJobs = ConcurrentHashMap.newKeySet();
+    // Held jobs whose task is executing right now
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public WordJobService(
+            WordJobRepository repository,
+            ObjectMapper objectMapper,
+            @Value("${jobs.lease:60s}") Duration lease,
+            @Value("${jobs.max-attempts:3}") int maxAttempts,
+            @Value("${jobs.retention:7d}") Duration retention,
+            MeterRegistry meterRegistry
+    ) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.retention = retention;
+        this.meterRegistry = meterRegistry;
+        this.instanceId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+        Gauge.builder("jobs.held", heldJobs, Set::size).register(meterRegistry);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Marks the job's task as executing; {@link #checkpointHeld} leaves such jobs alone.
+     */
+    public void started(WordJob job) {
+        runningJobs.add(job.getId());
+    }
+
+    public void exited(WordJob job) {
+        runningJobs.remove(job.getId());
+    }
+
+    /**
+     * Records a newly accepted word list, already leased to this instance.
+     */
+    @Transactional
+    public WordJob create(User user, String wordsText) {
+        Instant now = Instant.now();
+        WordJob job = new WordJob();
+        job.setChatId(user.getChatId());
+        job.setSheetId(user.getSheetId());
+        job.setWordsText(wordsText);
+        job.setStatus(JobStatus.PENDING);
+        job.setAttempts(1);
+        job.setLockedBy(instanceId);
+        job.setLockedUntil(now.plus(lease));
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+
+        WordJob saved = repository.save(job);
+        heldJobs.add(saved.getId());
+        meterRegistry.counter("jobs.transitions", "status", JobStatus.PENDING.name()).increment();
+        return saved;
+    }
+
+    @Transactional
+    public void markTranslated(WordJob job, List<WordData> rows) {
+        job.setTranslatedRows(toJson(rows));
+        update(job, JobStatus.TRANSLATED);
+    }
+
+    /**
+     * Records written rows, so a resumed or retried run does not write them again.
+     */
+    @Transactional
+    public void markWritten(WordJob job, List<WordData> rows) {
+        StringBuilder written = new StringBuilder(job.getWrittenWords() == null ? "" : job.getWrittenWords());
+        for (WordData row : rows) {
+            written.append(row.getOriginal()).append('\n');
+        }
+        job.setWrittenWords(written.toString());
+        update(job, job.getStatus());
+    }
+
+    @Transactional
+    public void markDone(WordJob job) {
+        job.setTranslatedRows(null);
+        finish(job, JobStatus.DONE, null);
+    }
+
+    /**
+     * Puts a job whose run left some words untranslated back up for recovery,
+     * keeping what was written. The run counts as an attempt, so words the model
+     * keeps failing on end the job after {@code jobs.max-attempts}.
+     */
+    @Transactional
+    public void markIncomplete(WordJob job, int missing) {
+        job.setTranslatedRows(null);
+        finish(job, JobStatus.PENDING, missing + " words left untranslated");
+    }
+
+    @Transactional
+    public void markFailed(WordJob job, Exception error) {
+        finish(job, JobStatus.FAILED, error.getClass().getSimpleName() + ": " + error.getMessage());
+    }
+
+    /**
+     * Gives up this instance's lease without finishing the job, so the next claim
+     * picks it up. The job never ran under this claim, so the claim's attempt is
+     * taken back.
+     */
+    @Transactional
+    public void release(WordJob job) {
+        job.setAttempts(Math.max(0, job.getAttempts() - 1));
+        job.setLockedBy(null);
+        job.setLockedUntil(null);
+        job.setUpdatedAt(Instant.now());
+        repository.save(job);
+        heldJobs.remove(job.getId());
+    }
+
+    public List<WordData> translatedRows(WordJob job) {
+        try {
+            return objectMapper.readValue(job.getTranslatedRows(), WORD_LIST);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt translated rows in job " + job.getId(), e);
+        }
+    }
+
+    /**
+     * Words of the job's list that no run has answered yet, as the user typed them.
+     * The model sometimes answers a word under another form ("colour" as "color",
+     * "apples" as "apple"); such a row matches no word of the list, so each one
+     * written is taken to answer one of the words that look unanswered. Only when
+     * more words are missing than that are they all returned for a retry, which
+     * skips the rows written so far.
+     */
+    public List<String> unansweredWords(WordJob job) {
+        Set<String> written = writtenKeys(job);
+        List<String> words = WordNormalizer.split(job.getWordsText());
+        Set<String> requested = new HashSet<>();
+        List<String> missing = new ArrayList<>();
+        for (String word : words) {
+            String key = WordNormalizer.normalize(word);
+            requested.add(key);
+            if (!written.contains(key)) {
+                missing.add(word);
+            }
+        }
+        long answeredElsewhere = written.stream().filter(key -> !requested.contains(key)).count();
+        return answeredElsewhere >= missing.size() ? List.of() : missing;
+    }
+
+    /**
+     * Drops rows whose word a previous run already wrote.
+     */
+    public List<WordData> unwritten(WordJob job, List<WordData> rows) {
+        if (job.getWrittenWords() == null || job.getWrittenWords().isEmpty()) {
+            return rows;
+        }
+        Set<String> written = writtenKeys(job);
+        return rows.stream()
+                .filter(row -> !written.contains(WordNormalizer.normalize(row.getOriginal())))
+                .toList();
+    }
+
+    /**
+     * Releases every unfinished job this instance holds, keeping the progress saved
+     * so far, so another instance resumes it on its next claim instead of waiting
+     * for the lease to run out. A restart is not the job's fault, so its attempt is
+     * taken back. Jobs whose task is still executing keep their lease until it
+     * runs out, so no one resumes them while they may still write.
+     *
+     * @return the released jobs
+     */
+    @Transactional
+    public List<WordJob> checkpointHeld() {
+        if (heldJobs.isEmpty()) {
+            return List.of();
+        }
+        List<Long> idle = heldJobs.stream().filter(id -> !runningJobs.contains(id)).toList();
+        if (idle.size() < heldJobs.size()) {
+            log.warn("Keeping the lease on {} jobs whose tasks are still running", heldJobs.size() - idle.size());
+        }
+        List<WordJob> released = new ArrayList<>();
+        for (WordJob job : repository.findAllById(idle)) {
+            if ((job.getStatus() == JobStatus.PENDING || job.getStatus() == JobStatus.TRANSLATED)
+                    && instanceId.equals(job.getLockedBy())) {
+                job.setAttempts(Math.max(0, job.getAttempts() - 1));
+                job.setLockedBy(null);
+                job.setLockedUntil(null);
+                job.setUpdatedAt(Instant.now());
+                released.add(job);
+            }
+        }
+        heldJobs.removeAll(idle);
+        meterRegistry.counter("jobs.checkpointed").increment(released.size());
+        return released;
+    }
+
+    /**
+     * Takes over unfinished jobs with an expired lease, of chats in the given
+     * shards out of {@code shardCount}. Jobs that were already
+     * claimed {@code jobs.max-attempts} times are failed instead and returned as
+     * abandoned, so their users can be told.
+     */
+    @Transactional
+    public Claims claimExpired(int shardCount, Collection<Integer> shards, int limit) {
+        Instant now = Instant.now();
+        List<WordJob> claimed = new ArrayList<>();
+        List<WordJob> abandoned = new ArrayList<>();
+
+        for (WordJob job : repository.lockExpired(now, shardCount, shards, limit)) {
+            job.setAttempts(job.getAttempts() + 1);
+            job.setUpdatedAt(now);
+            if (job.getAttempts() > maxAttempts) {
+                log.warn("Job {} for chatId={} abandoned after {} attempts", job.getId(), job.getChatId(), maxAttempts);
+                job.setStatus(JobStatus.FAILED);
+                job.setLastError("Lease expired " + maxAttempts + " times");
+                job.setLockedBy(null);
+                job.setLockedUntil(null);
+                meterRegistry.counter("jobs.transitions", "status", JobStatus.FAILED.name()).increment();
+                abandoned.add(job);
+                continue;
+            }
+            log.info("Claimed job {} for chatId={} from {} (attempt {})",
+                    job.getId(), job.getChatId(), job.getLockedBy(), job.getAttempts());
+            job.setLockedBy(instanceId);
+            job.setLockedUntil(now.plus(lease));
+            heldJobs.add(job.getId());
+            claimed.add(job);
+        }
+        meterRegistry.counter("jobs.claimed").increment(claimed.size());
+        return new Claims(claimed, abandoned);
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.heartbeat-interval:20000}")
+    @Transactional
+    public void renewLeases() {
+        if (heldJobs.isEmpty()) {
+            return;
+        }
+        int renewed = repository.renewLeases(List.copyOf(heldJobs), instanceId, Instant.now().plus(lease));
+        log.debug("Renewed leases on {} of {} held jobs", renewed, heldJobs.size());
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.cleanup-interval:3600000}")
+    @Transactional
+    public void deleteFinished() {
+        int deleted = repository.deleteByStatusUpdatedBefore(
+                List.of(JobStatus.DONE, JobStatus.FAILED), Instant.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Deleted {} finished jobs older than {}", deleted, retention);
+        }
+    }
+
+    private static Set<String> writtenKeys(WordJob job) {
+        Set<String> written = new HashSet<>();
+        if (job.getWrittenWords() != null && !job.getWrittenWords().isEmpty()) {
+            for (String word : job.getWrittenWords().split("\n")) {
+                written.add(WordNormalizer.normalize(word));
+            }
+        }
+        return written;
+    }
+
+    private void update(WordJob job, JobStatus status) {
+        save(job, status, Instant.now().plus(lease));
+    }
+
+    private void finish(WordJob job, JobStatus status, String error) {
+        job.setLastError(error != null && error.length() > 255 ? error.substring(0, 255) : error);
+        job.setLockedBy(null);
+        save(job, status, null);
+        heldJobs.remove(job.getId());
+    }
+
+    private void save(WordJob job, JobStatus status, Instant lockedUntil) {
+        if (job.getStatus() != status) {
+            meterRegistry.counter("jobs.transitions", "status", status.name()).increment();
+        }
+        job.setStatus(status);
+        job.setLockedUntil(lockedUntil);
+        job.setUpdatedAt(Instant.now());
+        repository.save(job);
+    }
+
+    private String toJson(List<WordData> rows) {
+        try {
+            return objectMapper.writeValueAsString(rows);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize translated rows", e);
+        }
+    }
+
+    public record Claims(List<WordJob> claimed, List<WordJob> abandoned) {
+    }
+}
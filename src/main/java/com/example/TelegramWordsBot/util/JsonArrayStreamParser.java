@@ -0,0 +1,62 @@
+package com.example.TelegramWordsBot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser for a JSON array of objects that arrives in arbitrary chunks.
+ * Everything before the opening bracket (e.g. a ```json fence) is ignored, and each
+ * top-level object is returned as raw JSON as soon as its closing brace is seen.
+ * Only the object currently being read is kept in memory.
+ */
+public class JsonArrayStreamParser {
+
+    private final StringBuilder current = new StringBuilder();
+    private boolean inArray;
+    private boolean inString;
+    private boolean escaped;
+    private int depth;
+
+    public List<String> feed(CharSequence chunk) {
+        List<String> objects = new ArrayList<>();
+
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+
+            if (!inArray) {
+                inArray = c == '[';
+                continue;
+            }
+
+            if (depth == 0) {
+                if (c == '{') {
+                    depth = 1;
+                    current.setLength(0);
+                    current.append(c);
+                }
+                continue;
+            }
+
+            current.append(c);
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                objects.add(current.toString());
+                current.setLength(0);
+            }
+        }
+
+        return objects;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.TelegramWordsBot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text that arrives in arbitrary chunks into complete lines. Only the
+ * unfinished last line is kept in memory.
+ */
+public class LineStreamParser {
+
+    private final StringBuilder current = new StringBuilder();
+
+    public List<String> feed(CharSequence chunk) {
+        List<String> lines = new ArrayList<>();
+
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (c == '\n') {
+                lines.add(current.toString());
+                current.setLength(0);
+            } else if (c != '\r') {
+                current.append(c);
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * Returns the last line if the stream did not end with a line break.
+     */
+    public String finish() {
+        String last = current.toString();
+        current.setLength(0);
+        return last;
+    }
+}
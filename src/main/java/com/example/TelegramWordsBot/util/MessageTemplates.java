@@ -0,0 +1,162 @@
+package com.example.TelegramWordsBot.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * All files from {@code messages/}, read once at startup. Templates with a {@code %s}
+ * placeholder are also kept as a {@link Prompt} split around it. If
+ * {@code messages.reload-dir} is set, files in that directory override the bundled
+ * ones and are picked up again when they change.
+ */
+@Slf4j
+@Component
+public class MessageTemplates {
+
+    private static final String CLASSPATH_PATTERN = "classpath*:messages/*";
+    private static final String PLACEHOLDER = "%s";
+
+    private final String reloadDir;
+    private volatile Loaded loaded;
+
+    public MessageTemplates(@Value("${messages.reload-dir:}") String reloadDir) {
+        this.reloadDir = reloadDir;
+        this.loaded = load();
+        log.info("Loaded {} message templates", loaded.texts().size());
+    }
+
+    public String get(String name) {
+        String text = loaded.texts().get(name);
+        if (text == null) {
+            throw new RuntimeException("Message template not found: " + name);
+        }
+        return text;
+    }
+
+    public Prompt prompt(String name) {
+        Prompt prompt = loaded.prompts().get(name);
+        if (prompt == null) {
+            throw new RuntimeException("Message template " + name + " has no " + PLACEHOLDER + " placeholder");
+        }
+        return prompt;
+    }
+
+    @Scheduled(fixedDelayString = "${messages.reload-interval:5000}")
+    public void reloadIfChanged() {
+        if (reloadDir.isBlank()) {
+            return;
+        }
+        FileTime modified = lastModified(Path.of(reloadDir));
+        if (modified != null && !modified.equals(loaded.overridesModified())) {
+            loaded = load();
+            log.info("Reloaded message templates from {}", reloadDir);
+        }
+    }
+
+    private Loaded load() {
+        Map<String, String> texts = new HashMap<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(CLASSPATH_PATTERN)) {
+                if (resource.isReadable() && resource.getFilename() != null) {
+                    texts.put(resource.getFilename(), ResourceUtils.readMessage(resource.getFilename()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list message templates", e);
+        }
+
+        FileTime overridesModified = null;
+        if (!reloadDir.isBlank()) {
+            Path dir = Path.of(reloadDir);
+            overridesModified = lastModified(dir);
+            for (Path file : listFiles(dir)) {
+                try {
+                    texts.put(file.getFileName().toString(), Files.readString(file, StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    log.error("Failed to read message template override {}", file, e);
+                }
+            }
+        }
+
+        Map<String, Prompt> prompts = new HashMap<>();
+        texts.forEach((name, text) -> {
+            int placeholder = text.indexOf(PLACEHOLDER);
+            if (placeholder >= 0) {
+                prompts.put(name, new Prompt(
+                        text.substring(0, placeholder).replace("%%", "%"),
+                        text.substring(placeholder + PLACEHOLDER.length()).replace("%%", "%")
+                ));
+            }
+        });
+
+        return new Loaded(Map.copyOf(texts), Map.copyOf(prompts), overridesModified);
+    }
+
+    private static List<Path> listFiles(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Files::isRegularFile).toList();
+        } catch (IOException e) {
+            log.error("Failed to list message templates in {}", dir, e);
+            return List.of();
+        }
+    }
+
+    private static FileTime lastModified(Path dir) {
+        FileTime latest = null;
+        for (Path file : listFiles(dir)) {
+            try {
+                FileTime modified = Files.getLastModifiedTime(file);
+                if (latest == null || modified.compareTo(latest) > 0) {
+                    latest = modified;
+                }
+            } catch (IOException e) {
+                log.debug("Could not stat {}", file, e);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * A template split around its single {@code %s}, so filling it is two appends
+     * instead of parsing a format string on every call.
+     */
+    public record Prompt(String prefix, String suffix) {
+
+        public String render(List<String> lines) {
+            int length = prefix.length() + suffix.length() + lines.size();
+            for (String line : lines) {
+                length += line.length();
+            }
+
+            StringBuilder prompt = new StringBuilder(length).append(prefix);
+            for (int i = 0; i < lines.size(); i++) {
+                if (i > 0) {
+                    prompt.append('\n');
+                }
+                prompt.append(lines.get(i));
+            }
+            return prompt.append(suffix).toString();
+        }
+    }
+
+    private record Loaded(Map<String, String> texts, Map<String, Prompt> prompts, FileTime overridesModified) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.TelegramWordsBot.util;
+
+/**
+ * SM-2 spaced repetition: after each answer, graded 0 (no idea) to 5 (perfect),
+ * the card's ease factor and the number of days until its next review are updated.
+ * A grade below 3 starts the card over with a one-day interval.
+ */
+public final class Sm2 {
+
+    public static final double INITIAL_EASE = 2.5;
+    private static final double MIN_EASE = 1.3;
+
+    private Sm2() {
+    }
+
+    public static Schedule next(Schedule current, int quality) {
+        if (quality < 3) {
+            return new Schedule(current.ease(), 1, 0);
+        }
+
+        int repetitions = current.repetitions() + 1;
+        int intervalDays = switch (repetitions) {
+            case 1 -> 1;
+            case 2 -> 6;
+            default -> (int) Math.round(current.intervalDays() * current.ease());
+        };
+        int miss = 5 - quality;
+        double ease = Math.max(MIN_EASE, current.ease() + 0.1 - miss * (0.08 + miss * 0.02));
+        return new Schedule(ease, intervalDays, repetitions);
+    }
+
+    /**
+     * @param repetitions answers of grade 3 or more in a row
+     */
+    public record Schedule(double ease, int intervalDays, int repetitions) {
+
+        public static Schedule initial() {
+            return new Schedule(INITIAL_EASE, 0, 0);
+        }
+    }
+}
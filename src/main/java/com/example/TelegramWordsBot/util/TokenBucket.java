@@ -0,0 +1,60 @@
+package com.example.TelegramWordsBot.util;
+
+import java.time.Duration;
+
+/**
+ * Token bucket rate limiter. Holds up to {@code capacity} tokens and refills them
+ * evenly so that {@code capacity} tokens become available per {@code period}.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, Duration period) {
+        if (capacity <= 0 || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("capacity and period must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = (double) capacity / period.toNanos();
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Takes {@code permits} tokens at once, or none if fewer are available. Asking
+     * for more than the capacity takes a full bucket.
+     */
+    public synchronized boolean tryAcquire(int permits) {
+        refill();
+        double needed = Math.min(permits, capacity);
+        if (tokens >= needed) {
+            tokens -= needed;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Time until the next token is available, zero if one is available now.
+     */
+    public synchronized Duration timeToNextToken() {
+        refill();
+        if (tokens >= 1) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
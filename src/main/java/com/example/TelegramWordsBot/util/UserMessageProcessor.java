@@ -1,43 +1,252 @@
 package com.example.TelegramWordsBot.util;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
 
+/**
+ * Runs message handling on a fixed pool of workers while keeping tasks of one chat
+ * strictly serial and in arrival order. While a chat has a task running, up to
+ * {@code bot.processor.per-chat-queue} further tasks wait for it; beyond that
+ * {@link #submit} rejects. After each task the chat goes back to the end of the
+ * pool queue, so a busy chat cannot hold a worker while others wait.
+ * <p>
+ * On shutdown {@link #drain} stops taking new tasks and lets the accepted ones
+ * finish within a deadline, then interrupts the rest and reports the chats whose
+ * tasks never ran.
+ */
 @Slf4j
 @Component
 public class UserMessageProcessor {
 
-    private final ExecutorService executor = Executors.newCachedThreadPool();
-    private final ConcurrentHashMap<Long, Future<?>> userTasks = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final int perChatQueueSize;
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWaitTimer;
 
+    // A chat is present in the map exactly while one of its tasks is running or scheduled
+    private final ConcurrentHashMap<Long, Queue<QueuedTask>> chats = new ConcurrentHashMap<>();
+    private final Set<Long> runningChats = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    private final AtomicLong startedTasks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicInteger runningTasks = new AtomicInteger();
+    private final AtomicLong finishedTasks = new AtomicLong();
+
+    private volatile boolean accepting = true;
+
+    public UserMessageProcessor(
+            @Value("${bot.processor.workers:8}") int workers,
+            @Value("${bot.processor.per-chat-queue:2}") int perChatQueueSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.executor = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("chat-worker-"));
+        this.perChatQueueSize = perChatQueueSize;
+        this.meterRegistry = meterRegistry;
+        this.queueWaitTimer = meterRegistry.timer("bot.processor.queue.wait");
+
+        Gauge.builder("bot.processor.queued", queuedTasks, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("bot.processor.active.chats", chats, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    /**
+     * @return {@code false} if the chat already has the maximum number of tasks
+     * waiting, or the processor is draining or shut down
+     */
     public boolean submit(Long chatId, Runnable task) {
-        Future<?> existing = userTasks.get(chatId);
-        if (existing != null && !existing.isDone()) {
+        if (!accepting) {
+            meterRegistry.counter("bot.processor.submissions", "outcome", "draining").increment();
             return false;
         }
+        QueuedTask queuedTask = new QueuedTask(task, System.nanoTime());
+        boolean[] accepted = {true};
+        boolean[] startNow = {false};
 
-        Future<?> future = executor.submit(() -> {
-            try {
-                log.debug("Starting task execution for chatId={}", chatId);
-                task.run();
-                log.debug("Task completed successfully for chatId={}", chatId);
-            } catch (Exception e) {
-                log.error("Error executing task for chatId={}", chatId, e);
-                throw e;
-            } finally {
-                userTasks.remove(chatId);
-                log.debug("Removed task for chatId={}", chatId);
+        queuedTasks.incrementAndGet();
+        chats.compute(chatId, (id, pending) -> {
+            if (pending == null) {
+                startNow[0] = true;
+                return new ArrayDeque<>();
             }
+            if (pending.size() >= perChatQueueSize) {
+                accepted[0] = false;
+            } else {
+                pending.add(queuedTask);
+            }
+            return pending;
         });
 
-        userTasks.put(chatId, future);
+        if (!accepted[0]) {
+            meterRegistry.counter("bot.processor.submissions", "outcome", "rejected").increment();
+            queuedTasks.decrementAndGet();
+            return false;
+        }
+
+        if (startNow[0]) {
+            try {
+                executor.execute(() -> run(chatId, queuedTask));
+            } catch (RejectedExecutionException e) {
+                // Raced with shutdown past the accepting check; the caller treats it as a draining rejection
+                chats.computeIfPresent(chatId, (id, pending) -> pending.isEmpty() ? null : pending);
+                queuedTasks.decrementAndGet();
+                meterRegistry.counter("bot.processor.submissions", "outcome", "draining").increment();
+                log.debug("Rejected task for chatId={} on shutdown", chatId);
+                return false;
+            }
+        } else {
+            log.debug("Queued task for chatId={} behind the running one", chatId);
+        }
+        meterRegistry.counter("bot.processor.submissions", "outcome", "accepted").increment();
         return true;
     }
-}
 
+    private void run(Long chatId, QueuedTask queuedTask) {
+        long waitNanos = System.nanoTime() - queuedTask.submittedAt();
+        queuedTasks.decrementAndGet();
+        startedTasks.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        queueWaitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        runningTasks.incrementAndGet();
+        runningChats.add(chatId);
+        try {
+            log.debug("Starting task execution for chatId={}", chatId);
+            queuedTask.task().run();
+            log.debug("Task completed successfully for chatId={}", chatId);
+        } catch (Exception e) {
+            outcome = "error";
+            log.error("Error executing task for chatId={}", chatId, e);
+        } finally {
+            runningChats.remove(chatId);
+            runningTasks.decrementAndGet();
+            finishedTasks.incrementAndGet();
+            sample.stop(meterRegistry.timer("bot.processor.task", "outcome", outcome));
+            scheduleNext(chatId);
+        }
+    }
+
+    private void scheduleNext(Long chatId) {
+        QueuedTask[] next = {null};
+        chats.computeIfPresent(chatId, (id, pending) -> {
+            next[0] = pending.poll();
+            return next[0] == null ? null : pending;
+        });
 
+        if (next[0] != null) {
+            try {
+                executor.execute(() -> run(chatId, next[0]));
+            } catch (RejectedExecutionException e) {
+                // Drain cut the chat off; it stays in the map and is reported as dropped
+                log.debug("Dropped next task for chatId={} on shutdown", chatId);
+            }
+        } else {
+            log.debug("Removed task for chatId={}", chatId);
+        }
+    }
+
+    /**
+     * Number of accepted tasks that have not started yet.
+     */
+    public int getQueuedTasks() {
+        return queuedTasks.get();
+    }
+
+    /**
+     * Number of chats with a running or waiting task.
+     */
+    public int getActiveChats() {
+        return chats.size();
+    }
+
+    /**
+     * Whether any chat matching the filter has a running or waiting task.
+     */
+    public boolean hasActiveChat(LongPredicate filter) {
+        for (Long chatId : chats.keySet()) {
+            if (filter.test(chatId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Duration getAverageWaitTime() {
+        long started = startedTasks.get();
+        return started == 0 ? Duration.ZERO : Duration.ofNanos(totalWaitNanos.get() / started);
+    }
+
+    /**
+     * Whether {@link #drain} was called; tasks still running are about to be cut off.
+     */
+    public boolean isDraining() {
+        return !accepting;
+    }
+
+    /**
+     * Stops accepting tasks and waits until the running and already queued ones
+     * are done, or the timeout passes. Tasks left after that are interrupted and
+     * given {@code interruptTimeout} to exit; the queued ones behind them are dropped.
+     */
+    public DrainResult drain(Duration timeout, Duration interruptTimeout) throws InterruptedException {
+        accepting = false;
+        long finishedBefore = finishedTasks.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!chats.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+
+        int cutOff = runningTasks.get() + queuedTasks.get();
+        executor.shutdownNow();
+        if (!executor.awaitTermination(interruptTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("{} tasks did not exit within {} of being interrupted", runningTasks.get(), interruptTimeout);
+        }
+
+        // Whatever is still in the map past its running task was never started
+        Set<Long> droppedChats = new LinkedHashSet<>();
+        chats.forEach((chatId, pending) -> {
+            if (!pending.isEmpty() || !runningChats.contains(chatId)) {
+                droppedChats.add(chatId);
+            }
+        });
+        return new DrainResult((int) (finishedTasks.get() - finishedBefore), cutOff, runningTasks.get(), droppedChats);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private record QueuedTask(Runnable task, long submittedAt) {
+    }
+
+    /**
+     * @param finished tasks that completed while draining
+     * @param cutOff tasks interrupted or never started because the deadline passed
+     * @param stuck interrupted tasks that still had not exited
+     * @param droppedChats chats with an accepted task that never started
+     */
+    public record DrainResult(int finished, int cutOff, int stuck, Set<Long> droppedChats) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.TelegramWordsBot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Usage count within a fixed window, such as the current minute or day. The window
+ * number and the count are packed into one {@link AtomicLong}, so moving to a new
+ * window and adding to it is a single compare-and-set without locks.
+ */
+public final class WindowCounter {
+
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Adds {@code amount} if the count of {@code window} stays within {@code limit}.
+     * A count left over from an earlier window is discarded.
+     */
+    public boolean tryAdd(long window, long amount, long limit) {
+        while (true) {
+            long current = state.get();
+            long count = windowOf(current) == window ? countOf(current) : 0;
+            if (count + amount > limit) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(window, count + amount))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes back an amount added by {@link #tryAdd}, unless the window has moved on.
+     */
+    public void subtract(long window, long amount) {
+        while (true) {
+            long current = state.get();
+            if (windowOf(current) != window) {
+                return;
+            }
+            if (state.compareAndSet(current, pack(window, Math.max(0, countOf(current) - amount)))) {
+                return;
+            }
+        }
+    }
+
+    public long get(long window) {
+        long current = state.get();
+        return windowOf(current) == window ? countOf(current) : 0;
+    }
+
+    /**
+     * Starts {@code window} at a count restored from storage, unless it has already
+     * been counted into.
+     */
+    public void restore(long window, long count) {
+        state.compareAndSet(0, pack(window, Math.min(count, COUNT_MASK)));
+    }
+
+    private static long pack(long window, long count) {
+        return window << 32 | count;
+    }
+
+    private static long windowOf(long state) {
+        return state >>> 32;
+    }
+
+    private static long countOf(long state) {
+        return state & COUNT_MASK;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.TelegramWordsBot.util;
+
+import com.example.TelegramWordsBot.dto.WordData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Read-only English-Ukrainian dictionary packed into three arrays: the text of all
+ * entries in one {@code char[]}, the field boundaries in an {@code int[]}, and an
+ * open-addressing hash table of entry numbers over the normalized words. A lookup
+ * hashes the key and compares characters in place, and allocates only on a hit.
+ * <p>
+ * The source is tab-separated: word, translation and an optional transcription.
+ * Blank lines and lines starting with {@code #} are skipped; for a repeated word
+ * the first line wins.
+ */
+public final class WordDictionary {
+
+    private static final int FIELDS = 3;
+    private static final WordDictionary EMPTY = new WordDictionary(new char[0], new int[1], new int[1], 0);
+
+    private final char[] text;
+    // Field f of entry e spans text[bounds[e * FIELDS + f], bounds[e * FIELDS + f + 1])
+    private final int[] bounds;
+    // Entry number + 1 per slot, 0 for an empty slot
+    private final int[] table;
+    private final int size;
+
+    private WordDictionary(char[] text, int[] bounds, int[] table, int size) {
+        this.text = text;
+        this.bounds = bounds;
+        this.table = table;
+        this.size = size;
+    }
+
+    public static WordDictionary empty() {
+        return EMPTY;
+    }
+
+    public static WordDictionary load(BufferedReader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        int[] bounds = new int[1024];
+        int size = 0;
+        Set<String> keys = new HashSet<>();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length < 2 || fields[1].isBlank()) {
+                continue;
+            }
+            String key = WordNormalizer.normalize(fields[0]);
+            if (key.isEmpty() || !keys.add(key)) {
+                continue;
+            }
+
+            if ((size + 1) * FIELDS + 1 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            int base = size * FIELDS;
+            bounds[base] = text.length();
+            text.append(key);
+            bounds[base + 1] = text.length();
+            text.append(fields[1].trim());
+            bounds[base + 2] = text.length();
+            text.append(fields.length > 2 ? fields[2].trim() : "");
+            bounds[base + 3] = text.length();
+            size++;
+        }
+
+        char[] chars = new char[text.length()];
+        text.getChars(0, text.length(), chars, 0);
+        int[] table = new int[tableSize(size)];
+        WordDictionary dictionary = new WordDictionary(chars, Arrays.copyOf(bounds, size * FIELDS + 1), table, size);
+        for (int entry = 0; entry < size; entry++) {
+            dictionary.insert(entry);
+        }
+        return dictionary;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key a word already passed through {@link WordNormalizer#normalize(String)}
+     * @return the entry, or {@code null} if the word is not in the dictionary
+     */
+    public WordData lookup(String key) {
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (keyEquals(entry, key)) {
+                WordData data = new WordData();
+                data.setOriginal(field(entry, 0));
+                data.setTranslation(field(entry, 1));
+                data.setTranscription(field(entry, 2));
+                return data;
+            }
+        }
+        return null;
+    }
+
+    private void insert(int entry) {
+        int mask = table.length - 1;
+        int start = bounds[entry * FIELDS];
+        int slot = hash(text, start, bounds[entry * FIELDS + 1]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry + 1;
+    }
+
+    private boolean keyEquals(int entry, String key) {
+        int start = bounds[entry * FIELDS];
+        int end = bounds[entry * FIELDS + 1];
+        if (end - start != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (text[start + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String field(int entry, int field) {
+        int start = bounds[entry * FIELDS + field];
+        return new String(text, start, bounds[entry * FIELDS + field + 1] - start);
+    }
+
+    // String.hashCode, spread so that the low bits used for the slot vary
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(char[] text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // At most half full, so probe runs stay short
+    private static int tableSize(int entries) {
+        int capacity = 2;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.TelegramWordsBot.util;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Turns a complete model reply into word rows. The model sometimes wraps the JSON
+ * array in a Markdown code fence, which is stripped before parsing. The lenient
+ * variants recover every well-formed entry and count the rest, so one bad entry
+ * does not cost the whole list.
+ */
+public class WordListParser {
+
+    private static final TypeReference<List<WordData>> WORD_LIST = new TypeReference<>() {};
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n");
+    private static final Pattern TSV_HEADER = Pattern.compile("original\\ttranslation(?:\\ttranscription)?",
+            Pattern.CASE_INSENSITIVE);
+
+    private final ObjectMapper objectMapper;
+
+    public WordListParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public List<WordData> parse(String responseText) throws JsonProcessingException {
+        return objectMapper.readValue(stripCodeFence(responseText), WORD_LIST);
+    }
+
+    /**
+     * Parses every top-level object of the first JSON array in the reply on its own.
+     * Works for a bare array as well as an object wrapping one.
+     */
+    public Result parseLenient(String responseText) {
+        List<WordData> words = new ArrayList<>();
+        int malformed = 0;
+        for (String json : new JsonArrayStreamParser().feed(responseText)) {
+            WordData word = parseObject(json);
+            if (word != null) {
+                words.add(word);
+            } else {
+                malformed++;
+            }
+        }
+        return new Result(words, malformed);
+    }
+
+    /**
+     * @return the word, or {@code null} if the object is not valid JSON or has no original word
+     */
+    public WordData parseObject(String json) {
+        try {
+            WordData word = objectMapper.readValue(json, WordData.class);
+            return word.getOriginal() == null || word.getOriginal().isBlank() ? null : word;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    public static Result parseTsv(String responseText) {
+        List<WordData> words = new ArrayList<>();
+        int malformed = 0;
+        for (String line : LINE_BREAK.split(stripCodeFence(responseText))) {
+            if (isIgnorableTsvLine(line)) {
+                continue;
+            }
+            WordData word = parseTsvLine(line);
+            if (word != null) {
+                words.add(word);
+            } else {
+                malformed++;
+            }
+        }
+        return new Result(words, malformed);
+    }
+
+    /**
+     * Blank lines, fences and a header row carry no word and are not counted as malformed.
+     */
+    public static boolean isIgnorableTsvLine(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith("```") || TSV_HEADER.matcher(trimmed).matches();
+    }
+
+    /**
+     * @return the word, or {@code null} if the line has fewer than two tab-separated fields
+     */
+    public static WordData parseTsvLine(String line) {
+        String[] fields = line.trim().split("\t");
+        if (fields.length < 2 || fields[0].isBlank() || fields[1].isBlank()) {
+            return null;
+        }
+        WordData word = new WordData();
+        word.setOriginal(fields[0].trim());
+        word.setTranslation(fields[1].trim());
+        word.setTranscription(fields.length > 2 ? fields[2].trim() : "");
+        return word;
+    }
+
+    public static String stripCodeFence(String responseText) {
+        String cleaned = responseText.trim();
+        if (cleaned.startsWith("```json")) {
+            cleaned = cleaned.substring(7);
+        }
+        if (cleaned.startsWith("```")) {
+            cleaned = cleaned.substring(3);
+        }
+        if (cleaned.endsWith("```")) {
+            cleaned = cleaned.substring(0, cleaned.length() - 3);
+        }
+        return cleaned.trim();
+    }
+
+    /**
+     * @param malformed entries that were present but could not be turned into a word
+     */
+    public record Result(List<WordData> words, int malformed) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.TelegramWordsBot.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public final class WordNormalizer {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[\\r\\n,]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // "1. apple", "2) pear", "(3) plum", "- fig", "• kiwi"
+    private static final Pattern LIST_MARKER = Pattern.compile("^(?:\\(?\\d+[.):]|[-*•·–—+>])\\s*");
+    private static final Pattern EDGE_PUNCTUATION = Pattern.compile("^[\"'«“„‘]+|[.,;:!?…\"'»”‘’]+$");
+    // "e.g.", "i.e.", "U.S.A." keep their final dot
+    private static final Pattern ABBREVIATION = Pattern.compile("(?:\\p{L}{1,3}\\.){2,}");
+
+    private WordNormalizer() {
+    }
+
+    /**
+     * Splits a user message into separate words or phrases, one per line or comma.
+     * List markers, surrounding quotes and trailing punctuation are stripped, except
+     * for the final dot of an abbreviation like "e.g.", and a
+     * word that repeats an earlier one, ignoring case, is dropped.
+     */
+    public static List<String> split(String wordsList) {
+        List<String> words = new ArrayList<>();
+        if (wordsList == null) {
+            return words;
+        }
+
+        Set<String> seen = new HashSet<>();
+        for (String token : SEPARATORS.split(wordsList)) {
+            String word = clean(token);
+            if (!word.isEmpty() && seen.add(normalize(word))) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String clean(String token) {
+        String word = WHITESPACE.matcher(token.trim()).replaceAll(" ");
+        word = LIST_MARKER.matcher(word).replaceFirst("");
+        String stripped = EDGE_PUNCTUATION.matcher(word).replaceAll("").trim();
+        if (word.contains(stripped + ".") && ABBREVIATION.matcher(stripped + ".").matches()) {
+            return stripped + ".";
+        }
+        return stripped;
+    }
+
+    /**
+     * Cache key for a word: trimmed, single-spaced and case-folded.
+     */
+    public static String normalize(String word) {
+        if (word == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(word.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.util.MessageTemplates;
+import com.example.TelegramWordsBot.util.UserMessageProcessor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Points the bot at a local stand-in for the Bot API via {@code telegram.bot.api-url}.
+ */
+class TelegramBotApiTest {
+
+	private static final String TOKEN = "123:abc";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final List<String> paths = new CopyOnWriteArrayList<>();
+	private final List<JsonNode> bodies = new CopyOnWriteArrayList<>();
+	private final AtomicInteger throttle = new AtomicInteger();
+
+	private HttpServer api;
+	private TelegramSendQueue sendQueue;
+	private TelegramBot bot;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		api = HttpServer.create(new InetSocketAddress(0), 0);
+		api.createContext("/bot" + TOKEN, this::answer);
+		api.start();
+
+		sendQueue = new TelegramSendQueue(30, 10, Duration.ofSeconds(1), 3, new SimpleMeterRegistry());
+		bot = new TelegramBot(TOKEN, "words_bot", "http://localhost:" + api.getAddress().getPort(), 2,
+				mock(UserMessageProcessor.class), mock(TelegramMessageHandler.class), sendQueue,
+				mock(MessageTemplates.class), new SimpleMeterRegistry());
+	}
+
+	@AfterEach
+	void tearDown() {
+		sendQueue.shutdown();
+		api.stop(0);
+	}
+
+	@Test
+	void sendsMessagesToTheConfiguredApiUrl() throws Exception {
+		Message sent = bot.sendMessage(42L, "✅ Готово").get(10, TimeUnit.SECONDS);
+
+		assertEquals(5, sent.getMessageId());
+		assertEquals(List.of("/bot" + TOKEN + "/sendmessage"), paths);
+		assertEquals("42", bodies.get(0).get("chat_id").asText());
+		assertEquals("✅ Готово", bodies.get(0).get("text").asText());
+	}
+
+	@Test
+	void sendsTheCallAgainAfterRetryAfter() throws Exception {
+		throttle.set(1);
+
+		long start = System.nanoTime();
+		Message sent = bot.sendMessage(42L, "apple").get(10, TimeUnit.SECONDS);
+
+		assertEquals(5, sent.getMessageId());
+		assertEquals(2, paths.size());
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900), "waited for retry_after");
+	}
+
+	private void answer(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			paths.add(exchange.getRequestURI().getPath());
+			bodies.add(objectMapper.readTree(exchange.getRequestBody().readAllBytes()));
+
+			String response = throttle.getAndUpdate(left -> Math.max(0, left - 1)) > 0
+					? "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after 1\","
+							+ "\"parameters\":{\"retry_after\":1}}"
+					: "{\"ok\":true,\"result\":{\"message_id\":5,\"date\":0,\"chat\":{\"id\":42,\"type\":\"private\"}}}";
+			byte[] body = response.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+}
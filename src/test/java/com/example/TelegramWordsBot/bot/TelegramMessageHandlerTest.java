@@ -0,0 +1,178 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.dto.JobStatus;
+import com.example.TelegramWordsBot.dto.UserState;
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.exception.ChatGPTProcessingException;
+import com.example.TelegramWordsBot.model.User;
+import com.example.TelegramWordsBot.model.WordJob;
+import com.example.TelegramWordsBot.repository.WordJobRepository;
+import com.example.TelegramWordsBot.service.GoogleSheetsService;
+import com.example.TelegramWordsBot.service.QuotaService;
+import com.example.TelegramWordsBot.service.ReviewService;
+import com.example.TelegramWordsBot.service.ShardLeaseService;
+import com.example.TelegramWordsBot.service.SheetsWriteQueue;
+import com.example.TelegramWordsBot.service.TranslationService;
+import com.example.TelegramWordsBot.service.UserService;
+import com.example.TelegramWordsBot.service.WordJobService;
+import com.example.TelegramWordsBot.util.UserMessageProcessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs jobs through the real {@link WordJobService} with the database, the model
+ * and the sheet mocked out.
+ */
+class TelegramMessageHandlerTest {
+
+	private final WordJobRepository repository = mock(WordJobRepository.class);
+	private final TranslationService translationService = mock(TranslationService.class);
+	private final SheetsWriteQueue sheetsWriteQueue = mock(SheetsWriteQueue.class);
+	private final ShardLeaseService shardLeaseService = mock(ShardLeaseService.class);
+	private final UserService userService = mock(UserService.class);
+	private final QuotaService quotaService = mock(QuotaService.class);
+	private final TelegramBot bot = mock(TelegramBot.class);
+
+	private WordJobService wordJobService;
+	private TelegramMessageHandler handler;
+
+	@BeforeEach
+	void setUp() {
+		wordJobService = new WordJobService(repository, new ObjectMapper(),
+				Duration.ofSeconds(60), 3, Duration.ofDays(7), new SimpleMeterRegistry());
+		handler = new TelegramMessageHandler(userService, mock(GoogleSheetsService.class),
+				translationService, sheetsWriteQueue, wordJobService, quotaService,
+				mock(ReviewService.class), mock(SheetSyncRunner.class), mock(UserMessageProcessor.class),
+				shardLeaseService);
+		ReflectionTestUtils.setField(handler, "sheetsWriteTimeout", Duration.ofSeconds(5));
+
+		when(repository.save(any())).thenAnswer(invocation -> {
+			WordJob job = invocation.getArgument(0);
+			if (job.getId() == null) {
+				job.setId(7L);
+			}
+			return job;
+		});
+		when(shardLeaseService.isLocal(anyLong())).thenReturn(true);
+		when(sheetsWriteQueue.enqueue(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+		when(bot.sendMessage(anyLong(), anyString())).thenReturn(new CompletableFuture<>());
+	}
+
+	@Test
+	void wordAnsweredUnderAnotherSpellingFinishesTheJob() {
+		WordJob job = job("colour\napple");
+		when(translationService.processWords(job.getWordsText())).thenReturn(rows("color", "apple"));
+
+		handler.resumeJob(job, bot);
+
+		assertEquals(JobStatus.DONE, job.getStatus());
+		assertEquals(1, job.getAttempts());
+		verify(bot).sendMessage(eq(42L), startsWith("✅"));
+		verify(bot, never()).sendMessage(eq(42L), startsWith("⚠️"));
+	}
+
+	@Test
+	void unansweredWordPutsTheJobBackForRecovery() {
+		WordJob job = job("colour\napple\npear");
+		when(translationService.processWords(job.getWordsText())).thenReturn(rows("apple"));
+
+		handler.resumeJob(job, bot);
+
+		assertEquals(JobStatus.PENDING, job.getStatus());
+		assertEquals("2 words left untranslated", job.getLastError());
+		verify(bot).sendMessage(eq(42L), startsWith("⚠️ Записано в Google Sheets, але не вдалося перекласти слів: 2 (colour, pear)"));
+	}
+
+	@Test
+	void retrySkipsWordsWrittenByTheFirstRun() {
+		WordJob job = job("colour\napple\npear");
+		job.setWrittenWords("color\napple\n");
+		when(translationService.processWords(job.getWordsText())).thenReturn(rows("color", "apple", "pear"));
+
+		handler.resumeJob(job, bot);
+
+		assertEquals(JobStatus.DONE, job.getStatus());
+		assertEquals("color\napple\npear\n", job.getWrittenWords());
+		verify(sheetsWriteQueue).enqueue("sheet", rows("pear"));
+	}
+
+	@Test
+	void failedJobGivesTheQuotaChargeBack() {
+		User user = new User(42L, UserState.IDLE, "sheet", "hash");
+		when(userService.findOrCreate(42L)).thenReturn(user);
+		when(userService.isAuthorized(user)).thenReturn(true);
+		when(translationService.modelBound(List.of("apple"))).thenReturn(List.of("apple"));
+		QuotaService.Charge charge = new QuotaService.Charge(QuotaService.Decision.ALLOWED, 1, 1, 1, 17);
+		when(quotaService.tryAcquire(42L, List.of("apple"))).thenReturn(charge);
+		when(translationService.processWords("apple")).thenThrow(new ChatGPTProcessingException("model down"));
+
+		handler.handle(update("apple"), bot);
+
+		verify(quotaService).refund(42L, charge);
+		verify(bot).sendMessage(eq(42L), startsWith("⚠️ Помилка при обробці слів через ChatGPT"));
+	}
+
+	@Test
+	void failedResumedJobRefundsNothing() {
+		WordJob job = job("apple");
+		when(translationService.processWords("apple")).thenThrow(new ChatGPTProcessingException("model down"));
+
+		handler.resumeJob(job, bot);
+
+		assertEquals(JobStatus.FAILED, job.getStatus());
+		verify(quotaService, never()).refund(any(), any());
+	}
+
+	private static Update update(String text) {
+		Chat chat = new Chat();
+		chat.setId(42L);
+		Message message = new Message();
+		message.setChat(chat);
+		message.setText(text);
+		Update update = new Update();
+		update.setMessage(message);
+		return update;
+	}
+
+	private static WordJob job(String wordsText) {
+		WordJob job = new WordJob();
+		job.setId(7L);
+		job.setChatId(42L);
+		job.setSheetId("sheet");
+		job.setWordsText(wordsText);
+		job.setStatus(JobStatus.PENDING);
+		job.setAttempts(1);
+		return job;
+	}
+
+	private static List<WordData> rows(String... originals) {
+		return Arrays.stream(originals).map(original -> {
+			WordData row = new WordData();
+			row.setOriginal(original);
+			row.setTranslation("переклад");
+			return row;
+		}).toList();
+	}
+}
@@ -0,0 +1,155 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelegramSendQueueTest {
+
+	private TelegramSendQueue queue;
+
+	@AfterEach
+	void tearDown() {
+		queue.shutdown();
+	}
+
+	@Test
+	void sendsOneCallPerChatAtATimeInQueuedOrder() throws Exception {
+		queue = new TelegramSendQueue(30, 100, Duration.ofSeconds(1), 3, new SimpleMeterRegistry());
+		BlockingQueue<Pending> started = new LinkedBlockingQueue<>();
+
+		CompletableFuture<String> first = queue.submit(1L, fakeCall("first", started));
+		CompletableFuture<String> second = queue.submit(1L, fakeCall("second", started));
+		CompletableFuture<String> third = queue.submit(1L, fakeCall("third", started));
+
+		Pending call = started.poll(5, TimeUnit.SECONDS);
+		assertEquals("first", call.name());
+		assertNull(started.poll(100, TimeUnit.MILLISECONDS), "second waits for the first to be answered");
+
+		call.response().complete("first");
+		assertEquals("first", first.get(5, TimeUnit.SECONDS));
+		call = started.poll(5, TimeUnit.SECONDS);
+		assertEquals("second", call.name());
+		call.response().complete("second");
+		call = started.poll(5, TimeUnit.SECONDS);
+		assertEquals("third", call.name());
+		call.response().complete("third");
+
+		assertEquals("second", second.get(5, TimeUnit.SECONDS));
+		assertEquals("third", third.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void aBusyChatDoesNotHoldUpOthers() throws Exception {
+		queue = new TelegramSendQueue(30, 100, Duration.ofSeconds(1), 3, new SimpleMeterRegistry());
+		BlockingQueue<Pending> started = new LinkedBlockingQueue<>();
+
+		queue.submit(1L, fakeCall("slow", started));
+		CompletableFuture<String> other = queue.submit(2L, () -> CompletableFuture.completedFuture("other"));
+
+		assertEquals("other", other.get(5, TimeUnit.SECONDS));
+		assertEquals("slow", started.poll(5, TimeUnit.SECONDS).name());
+	}
+
+	@Test
+	void pausesTheChatForRetryAfterAndSendsTheCallAgain() throws Exception {
+		queue = new TelegramSendQueue(30, 100, Duration.ofSeconds(1), 3, new SimpleMeterRegistry());
+		AtomicInteger attempts = new AtomicInteger();
+
+		long start = System.nanoTime();
+		CompletableFuture<String> sent = queue.submit(1L, () -> attempts.incrementAndGet() == 1
+				? CompletableFuture.failedFuture(tooManyRequests(1))
+				: CompletableFuture.completedFuture("sent"));
+
+		assertEquals("sent", sent.get(5, TimeUnit.SECONDS));
+		assertEquals(2, attempts.get());
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900), "waited for retry_after");
+	}
+
+	@Test
+	void givesUpAfterMaxAttempts() throws Exception {
+		queue = new TelegramSendQueue(30, 100, Duration.ofSeconds(1), 2, new SimpleMeterRegistry());
+		AtomicInteger attempts = new AtomicInteger();
+
+		CompletableFuture<String> sent = queue.submit(1L, () -> {
+			attempts.incrementAndGet();
+			return CompletableFuture.failedFuture(tooManyRequests(0));
+		});
+
+		ExecutionException failure = assertThrows(ExecutionException.class, () -> sent.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(TelegramApiRequestException.class, failure.getCause());
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	void doesNotRetryOtherErrors() throws Exception {
+		queue = new TelegramSendQueue(30, 100, Duration.ofSeconds(1), 3, new SimpleMeterRegistry());
+		AtomicInteger attempts = new AtomicInteger();
+
+		CompletableFuture<String> sent = queue.submit(1L, () -> {
+			attempts.incrementAndGet();
+			throw new TelegramApiRequestException("Bad Request: chat not found");
+		});
+
+		assertThrows(ExecutionException.class, () -> sent.get(5, TimeUnit.SECONDS));
+		assertEquals(1, attempts.get());
+	}
+
+	@Test
+	void awaitEmptyWaitsForCallsInFlight() throws Exception {
+		queue = new TelegramSendQueue(30, 100, Duration.ofSeconds(1), 3, new SimpleMeterRegistry());
+		BlockingQueue<Pending> started = new LinkedBlockingQueue<>();
+
+		queue.submit(1L, fakeCall("first", started));
+		queue.submit(1L, fakeCall("second", started));
+		Pending call = started.poll(5, TimeUnit.SECONDS);
+
+		assertFalse(queue.awaitEmpty(Duration.ofMillis(100)));
+		call.response().complete("first");
+		started.poll(5, TimeUnit.SECONDS).response().complete("second");
+		assertTrue(queue.awaitEmpty(Duration.ofSeconds(5)));
+		assertEquals(0, queue.getQueuedCalls());
+	}
+
+	private static TelegramSendQueue.ApiCall<String> fakeCall(String name, BlockingQueue<Pending> started) {
+		return () -> {
+			CompletableFuture<String> response = new CompletableFuture<>();
+			started.add(new Pending(name, response));
+			return response;
+		};
+	}
+
+	private static TelegramApiRequestException tooManyRequests(int retryAfter) {
+		String json = "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests\","
+				+ "\"parameters\":{\"retry_after\":" + retryAfter + "}}";
+		try {
+			ApiResponse<List<Object>> response = new ObjectMapper().readValue(json, new TypeReference<>() {});
+			return new TelegramApiRequestException("Error sending message", response);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private record Pending(String name, CompletableFuture<String> response) {
+	}
+}
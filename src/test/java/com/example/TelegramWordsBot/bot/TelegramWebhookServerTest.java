@@ -0,0 +1,211 @@
+package com.example.TelegramWordsBot.bot;
+
+import com.example.TelegramWordsBot.exception.ShardUnavailableException;
+import com.example.TelegramWordsBot.service.ShardLeaseService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the webhook receiver over real HTTP on an ephemeral port.
+ */
+class TelegramWebhookServerTest {
+
+	private static final String SECRET = "s3cret";
+	private static final String CLUSTER_TOKEN = "cluster";
+	private static final String UPDATE = """
+			{"update_id":1,"message":{"message_id":7,"date":0,"chat":{"id":42,"type":"private"},"text":"apple"}}""";
+
+	private final TelegramBot bot = mock(TelegramBot.class);
+	private final ShardLeaseService shards = mock(ShardLeaseService.class);
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	private TelegramWebhookServer server;
+	private HttpServer owner;
+
+	@AfterEach
+	void tearDown() {
+		server.stop();
+		if (owner != null) {
+			owner.stop(0);
+		}
+	}
+
+	@Test
+	void rejectsCallsWithoutTheSecretToken() throws Exception {
+		start(false);
+
+		assertEquals(401, post("/telegram/webhook", UPDATE, null).statusCode());
+		assertEquals(401, post("/telegram/webhook", UPDATE, "wrong").statusCode());
+		verify(bot, never()).handleUpdate(any());
+	}
+
+	@Test
+	void rejectsOtherMethodsAndMalformedUpdates() throws Exception {
+		start(false);
+
+		HttpResponse<String> get = client.send(HttpRequest.newBuilder(url("/telegram/webhook")).GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(405, get.statusCode());
+		assertEquals(400, post("/telegram/webhook", "{not json", SECRET).statusCode());
+	}
+
+	@Test
+	void answersWithAnEmptyBodyWhenThereIsNoImmediateReply() throws Exception {
+		start(false);
+
+		HttpResponse<String> response = post("/telegram/webhook", UPDATE, SECRET);
+
+		assertEquals(200, response.statusCode());
+		assertEquals("", response.body());
+		verify(bot).handleUpdate(any());
+	}
+
+	@Test
+	void writesTheImmediateReplyAsJsonWithoutNulls() throws Exception {
+		start(false);
+		SendMessage reply = new SendMessage();
+		reply.setChatId("42");
+		reply.setText("⏳ wait");
+		doReturn(reply).when(bot).handleUpdate(any());
+
+		HttpResponse<String> response = post("/telegram/webhook", UPDATE, SECRET);
+
+		assertEquals(200, response.statusCode());
+		assertEquals("application/json", response.headers().firstValue("Content-Type").orElseThrow());
+		var json = new ObjectMapper().readTree(response.body());
+		assertEquals("sendmessage", json.get("method").asText());
+		assertEquals("42", json.get("chat_id").asText());
+		assertEquals("⏳ wait", json.get("text").asText());
+		assertFalse(response.body().contains("null"));
+	}
+
+	@Test
+	void swallowsHandlerErrorsSoTelegramDoesNotRedeliver() throws Exception {
+		start(false);
+		when(bot.handleUpdate(any())).thenThrow(new IllegalStateException("boom"));
+
+		assertEquals(200, post("/telegram/webhook", UPDATE, SECRET).statusCode());
+	}
+
+	@Test
+	void defersUpdatesForShardsWithoutAnOwner() throws Exception {
+		start(true);
+		when(shards.ownerUrl(42L)).thenThrow(new ShardUnavailableException("no owner"));
+
+		assertEquals(503, post("/telegram/webhook", UPDATE, SECRET).statusCode());
+	}
+
+	@Test
+	void forwardsUpdatesOfRemoteChatsAndRelaysTheReply() throws Exception {
+		AtomicReference<String> forwarded = new AtomicReference<>();
+		AtomicReference<String> token = new AtomicReference<>();
+		startOwner(200, "{\"method\":\"sendmessage\",\"chat_id\":\"42\",\"text\":\"hi\"}", forwarded, token);
+		start(true);
+		when(shards.ownerUrl(42L)).thenReturn("http://localhost:" + owner.getAddress().getPort());
+
+		HttpResponse<String> response = post("/telegram/webhook", UPDATE, SECRET);
+
+		assertEquals(200, response.statusCode());
+		assertTrue(response.body().contains("\"text\":\"hi\""));
+		assertEquals(UPDATE, forwarded.get());
+		assertEquals(CLUSTER_TOKEN, token.get());
+		verify(bot, never()).handleUpdate(any());
+	}
+
+	@Test
+	void failsTheDeliveryWhenTheOwnerRefusesTheForward() throws Exception {
+		startOwner(409, "", new AtomicReference<>(), new AtomicReference<>());
+		start(true);
+		when(shards.ownerUrl(42L)).thenReturn("http://localhost:" + owner.getAddress().getPort());
+
+		assertEquals(502, post("/telegram/webhook", UPDATE, SECRET).statusCode());
+	}
+
+	@Test
+	void refusesForwardedUpdatesOfChatsNoLongerLocal() throws Exception {
+		start(true);
+		when(shards.isLocal(42L)).thenReturn(false);
+
+		assertEquals(409, forward(UPDATE, CLUSTER_TOKEN).statusCode());
+		verify(bot, never()).handleUpdate(any());
+	}
+
+	@Test
+	void handlesForwardedUpdatesOfLocalChats() throws Exception {
+		start(true);
+		when(shards.isLocal(42L)).thenReturn(true);
+
+		assertEquals(401, forward(UPDATE, "wrong").statusCode());
+		assertEquals(200, forward(UPDATE, CLUSTER_TOKEN).statusCode());
+		verify(bot).handleUpdate(any());
+	}
+
+	private void start(boolean clustered) throws Exception {
+		when(shards.isEnabled()).thenReturn(clustered);
+		server = new TelegramWebhookServer(bot, new ObjectMapper(), 0, "/telegram/webhook", "", SECRET, 2,
+				shards, "/cluster/update", CLUSTER_TOKEN, Duration.ofSeconds(5));
+		server.start();
+	}
+
+	private void startOwner(int status, String body, AtomicReference<String> forwarded,
+	                        AtomicReference<String> token) throws Exception {
+		owner = HttpServer.create(new InetSocketAddress(0), 0);
+		owner.createContext("/cluster/update", exchange -> {
+			try (exchange) {
+				forwarded.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+				token.set(exchange.getRequestHeaders().getFirst("X-Cluster-Token"));
+				byte[] response = body.getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(status, response.length == 0 ? -1 : response.length);
+				if (response.length > 0) {
+					try (OutputStream out = exchange.getResponseBody()) {
+						out.write(response);
+					}
+				}
+			}
+		});
+		owner.start();
+	}
+
+	private HttpResponse<String> post(String path, String body, String secret) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(url(path))
+				.POST(HttpRequest.BodyPublishers.ofString(body));
+		if (secret != null) {
+			request.header("X-Telegram-Bot-Api-Secret-Token", secret);
+		}
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private HttpResponse<String> forward(String body, String token) throws Exception {
+		return client.send(HttpRequest.newBuilder(url("/cluster/update"))
+				.header("X-Cluster-Token", token)
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private URI url(String path) {
+		return URI.create("http://localhost:" + server.getPort() + path);
+	}
+}
@@ -0,0 +1,118 @@
+package com.example.TelegramWordsBot.repository;
+
+import com.example.TelegramWordsBot.model.ShardLease;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs against a real MySQL, since the lease guarantees rest on its row locking.
+ * Skipped where Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShardLeaseRepositoryTest {
+
+	@Container
+	static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+		registry.add("spring.datasource.username", MYSQL::getUsername);
+		registry.add("spring.datasource.password", MYSQL::getPassword);
+	}
+
+	private static final Duration LEASE = Duration.ofSeconds(15);
+
+	@Autowired
+	private ShardLeaseRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactions;
+
+	@BeforeEach
+	void setUp() {
+		transactions = new TransactionTemplate(transactionManager);
+		repository.deleteAll();
+		repository.save(new ShardLease(0, null, null, null));
+	}
+
+	@Test
+	void onlyOneOfConcurrentClaimsWins() throws Exception {
+		Instant now = Instant.now();
+		CyclicBarrier start = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<Integer>> claims = executor.invokeAll(List.of(
+					claimTogether("node-a", now, start),
+					claimTogether("node-b", now, start)));
+
+			int won = 0;
+			for (Future<Integer> claim : claims) {
+				won += claim.get();
+			}
+			assertEquals(1, won);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void liveLeaseCannotBeClaimedButExpiredOneCan() {
+		Instant now = Instant.now();
+		assertEquals(1, claim(0, "node-a", now));
+
+		assertEquals(0, claim(0, "node-b", now.plusSeconds(5)));
+		assertEquals(1, claim(0, "node-b", now.plus(LEASE).plusSeconds(1)));
+		assertEquals("node-b", repository.findById(0).orElseThrow().getOwner());
+	}
+
+	@Test
+	void onlyTheOwnerReleases() {
+		Instant now = Instant.now();
+		claim(0, "node-a", now);
+
+		assertEquals(0, (int) transactions.execute(status -> repository.release(0, "node-b")));
+		assertEquals(1, (int) transactions.execute(status -> repository.release(0, "node-a")));
+		assertEquals(1, claim(0, "node-b", now));
+	}
+
+	private Callable<Integer> claimTogether(String owner, Instant now, CyclicBarrier start) {
+		return () -> {
+			start.await();
+			return claim(0, owner, now);
+		};
+	}
+
+	private int claim(int shard, String owner, Instant now) {
+		return transactions.execute(status ->
+				repository.claim(shard, owner, "http://" + owner, now, now.plus(LEASE)));
+	}
+}
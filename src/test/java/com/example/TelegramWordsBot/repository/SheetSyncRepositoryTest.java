@@ -0,0 +1,91 @@
+package com.example.TelegramWordsBot.repository;
+
+import com.example.TelegramWordsBot.dto.SyncStatus;
+import com.example.TelegramWordsBot.model.SheetSync;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The owner-guarded cursor update of sheet syncs against a real MySQL.
+ * Skipped where Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SheetSyncRepositoryTest {
+
+	@Container
+	static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+		registry.add("spring.datasource.username", MYSQL::getUsername);
+		registry.add("spring.datasource.password", MYSQL::getPassword);
+	}
+
+	@Autowired
+	private SheetSyncRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		repository.deleteAll();
+	}
+
+	@Test
+	void ownerMovesTheCursor() {
+		SheetSync sync = repository.save(sync("me", 1));
+		sync.setNextRow(501);
+		sync.setRowsImported(480);
+
+		assertEquals(1, repository.saveIfHeld(sync, "me"));
+
+		SheetSync saved = repository.findById(1L).orElseThrow();
+		assertEquals(501, saved.getNextRow());
+		assertEquals(480, saved.getRowsImported());
+	}
+
+	@Test
+	void formerOwnerCannotOverwriteTheNewOne() {
+		repository.save(sync("new owner", 1001));
+		SheetSync stale = sync("me", 501);
+		stale.setStatus(SyncStatus.DONE);
+		stale.setLockedBy(null);
+
+		assertEquals(0, repository.saveIfHeld(stale, "me"));
+
+		SheetSync saved = repository.findById(1L).orElseThrow();
+		assertEquals(1001, saved.getNextRow());
+		assertEquals(SyncStatus.RUNNING, saved.getStatus());
+		assertEquals("new owner", saved.getLockedBy());
+	}
+
+	private static SheetSync sync(String owner, int nextRow) {
+		SheetSync sync = new SheetSync();
+		sync.setChatId(1L);
+		sync.setSheetId("sheet");
+		sync.setStatus(SyncStatus.RUNNING);
+		sync.setNextRow(nextRow);
+		sync.setAttempts(1);
+		sync.setLockedBy(owner);
+		sync.setLockedUntil(Instant.now().plusSeconds(60));
+		sync.setStartedAt(Instant.now());
+		sync.setUpdatedAt(Instant.now());
+		return sync;
+	}
+}
@@ -0,0 +1,236 @@
+package com.example.TelegramWordsBot.repository;
+
+import com.example.TelegramWordsBot.dto.JobStatus;
+import com.example.TelegramWordsBot.model.User;
+import com.example.TelegramWordsBot.model.WordJob;
+import com.example.TelegramWordsBot.service.WordJobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lease lifecycle of word jobs against a real MySQL, since claims rest on its
+ * {@code SKIP LOCKED} row locking. Skipped where Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WordJobRepositoryTest {
+
+	@Container
+	static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+		registry.add("spring.datasource.username", MYSQL::getUsername);
+		registry.add("spring.datasource.password", MYSQL::getPassword);
+	}
+
+	private static final Duration LEASE = Duration.ofSeconds(60);
+	private static final int MAX_ATTEMPTS = 2;
+	private static final List<Integer> ALL_SHARDS = List.of(0);
+
+	@Autowired
+	private WordJobRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactions;
+	private WordJobService service;
+	private WordJobService otherInstance;
+
+	@BeforeEach
+	void setUp() {
+		transactions = new TransactionTemplate(transactionManager);
+		repository.deleteAll();
+		service = newService();
+		otherInstance = newService();
+	}
+
+	@Test
+	void claimSkipsRowsLockedByAnotherClaim() throws Exception {
+		long id = expired(1L).getId();
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Integer> first = executor.submit(() -> transactions.execute(status -> {
+				int rows = repository.lockExpired(Instant.now(), 1, ALL_SHARDS, 10).size();
+				locked.countDown();
+				await(done);
+				return rows;
+			}));
+			assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+			assertEquals(0, transactions.execute(status ->
+					repository.lockExpired(Instant.now(), 1, ALL_SHARDS, 10)).size());
+
+			done.countDown();
+			assertEquals(1, first.get());
+			assertEquals(List.of(id), transactions.execute(status ->
+					repository.lockExpired(Instant.now(), 1, ALL_SHARDS, 10)).stream().map(WordJob::getId).toList());
+		} finally {
+			done.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void claimTakesOnlyChatsOfTheGivenShards() {
+		expired(4L);
+		expired(5L);
+		expired(-3L);
+
+		List<Long> chats = transactions.execute(status ->
+				repository.lockExpired(Instant.now(), 2, List.of(1), 10)).stream().map(WordJob::getChatId).toList();
+
+		assertEquals(List.of(5L, -3L), chats);
+	}
+
+	@Test
+	void claimLeavesLiveAndFinishedJobsAlone() {
+		WordJob live = service.create(user(1L), "apple");
+		WordJob done = expired(2L);
+		done.setStatus(JobStatus.DONE);
+		repository.save(done);
+
+		assertTrue(claim(otherInstance).claimed().isEmpty());
+		assertEquals(service.getInstanceId(), repository.findById(live.getId()).orElseThrow().getLockedBy());
+	}
+
+	@Test
+	void renewalExtendsOnlyThisInstancesLeases() {
+		WordJob held = service.create(user(1L), "apple");
+		Instant soon = Instant.now().plusSeconds(1);
+		held.setLockedUntil(soon);
+		repository.save(held);
+
+		transactions.executeWithoutResult(status -> service.renewLeases());
+
+		Instant renewed = repository.findById(held.getId()).orElseThrow().getLockedUntil();
+		assertTrue(renewed.isAfter(soon.plusSeconds(30)));
+
+		held.setLockedBy(otherInstance.getInstanceId());
+		held.setLockedUntil(soon);
+		repository.save(held);
+		transactions.executeWithoutResult(status -> service.renewLeases());
+		assertTrue(repository.findById(held.getId()).orElseThrow().getLockedUntil().isBefore(soon.plusSeconds(1)));
+	}
+
+	@Test
+	void releaseGivesTheAttemptBack() {
+		WordJob job = service.create(user(1L), "apple");
+
+		service.release(job);
+
+		WordJob released = repository.findById(job.getId()).orElseThrow();
+		assertEquals(0, released.getAttempts());
+		assertNull(released.getLockedBy());
+
+		WordJob claimed = claim(otherInstance).claimed().get(0);
+		assertEquals(1, claimed.getAttempts());
+		assertEquals(otherInstance.getInstanceId(), claimed.getLockedBy());
+	}
+
+	@Test
+	void incompleteJobIsClaimedAgainAsANewAttempt() {
+		WordJob job = service.create(user(1L), "apple\npear");
+
+		service.markIncomplete(job, 1);
+
+		WordJob pending = repository.findById(job.getId()).orElseThrow();
+		assertEquals(JobStatus.PENDING, pending.getStatus());
+		assertNull(pending.getLockedUntil());
+		assertEquals("1 words left untranslated", pending.getLastError());
+		assertEquals(2, claim(otherInstance).claimed().get(0).getAttempts());
+	}
+
+	@Test
+	void checkpointReleasesIdleJobsAndKeepsRunningOnes() {
+		WordJob idle = service.create(user(1L), "apple");
+		WordJob running = service.create(user(2L), "pear");
+		service.started(running);
+
+		List<WordJob> released = transactions.execute(status -> service.checkpointHeld());
+
+		assertEquals(List.of(idle.getId()), released.stream().map(WordJob::getId).toList());
+		WordJob checkpointed = repository.findById(idle.getId()).orElseThrow();
+		assertEquals(0, checkpointed.getAttempts());
+		assertNull(checkpointed.getLockedBy());
+		assertEquals(service.getInstanceId(), repository.findById(running.getId()).orElseThrow().getLockedBy());
+	}
+
+	@Test
+	void jobIsAbandonedAfterMaxAttempts() {
+		WordJob job = expired(1L);
+		job.setAttempts(MAX_ATTEMPTS);
+		repository.save(job);
+
+		WordJobService.Claims claims = claim(otherInstance);
+
+		assertTrue(claims.claimed().isEmpty());
+		assertEquals(List.of(job.getId()), claims.abandoned().stream().map(WordJob::getId).toList());
+		WordJob failed = repository.findById(job.getId()).orElseThrow();
+		assertEquals(JobStatus.FAILED, failed.getStatus());
+		assertNull(failed.getLockedBy());
+	}
+
+	private WordJobService newService() {
+		return new WordJobService(repository, new ObjectMapper(), LEASE, MAX_ATTEMPTS, Duration.ofDays(7),
+				new SimpleMeterRegistry());
+	}
+
+	private WordJobService.Claims claim(WordJobService instance) {
+		return transactions.execute(status -> instance.claimExpired(1, ALL_SHARDS, 10));
+	}
+
+	private WordJob expired(long chatId) {
+		WordJob job = otherInstance.create(user(chatId), "apple");
+		job.setLockedUntil(Instant.now().minusSeconds(1));
+		return repository.save(job);
+	}
+
+	private static User user(long chatId) {
+		User user = new User();
+		user.setChatId(chatId);
+		user.setSheetId("sheet");
+		return user;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.model.UserQuota;
+import com.example.TelegramWordsBot.repository.UserQuotaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuotaServiceTest {
+
+	private final UserQuotaRepository repository = mock(UserQuotaRepository.class);
+
+	@BeforeEach
+	void setUp() {
+		when(repository.findById(any())).thenReturn(Optional.empty());
+	}
+
+	@Test
+	void refusesListsLargerThanOneRequestMayBe() {
+		QuotaService quota = quota(5, 100, 100);
+
+		assertEquals(QuotaService.Decision.TOO_LARGE, quota.tryAcquire(1L, words(6)).decision());
+		assertEquals(QuotaService.Decision.ALLOWED, quota.tryAcquire(1L, words(5)).decision());
+	}
+
+	@Test
+	void chargesNothingForARefusedList() {
+		QuotaService quota = quota(100, 10, 100);
+
+		assertEquals(QuotaService.Decision.ALLOWED, quota.tryAcquire(1L, words(6)).decision());
+		assertEquals(QuotaService.Decision.MINUTE_LIMIT, quota.tryAcquire(1L, words(5)).decision());
+		assertEquals(QuotaService.Decision.ALLOWED, quota.tryAcquire(1L, words(4)).decision());
+	}
+
+	@Test
+	void stopsAtTheDailyLimit() {
+		QuotaService quota = quota(100, 100, 10);
+
+		quota.tryAcquire(1L, words(8));
+
+		assertEquals(QuotaService.Decision.DAILY_LIMIT, quota.tryAcquire(1L, words(3)).decision());
+		assertEquals(QuotaService.Decision.ALLOWED, quota.tryAcquire(2L, words(3)).decision(), "budgets are per user");
+	}
+
+	@Test
+	void emptyListsCostNothing() {
+		QuotaService quota = quota(100, 100, 10);
+
+		QuotaService.Charge charge = quota.tryAcquire(1L, List.of());
+
+		assertEquals(QuotaService.Decision.ALLOWED, charge.decision());
+		assertEquals(0, charge.words());
+		verify(repository, never()).findById(any());
+	}
+
+	@Test
+	void refundGivesTheChargeBack() {
+		QuotaService quota = quota(100, 10, 100);
+
+		QuotaService.Charge charge = quota.tryAcquire(1L, words(10));
+		assertEquals(QuotaService.Decision.MINUTE_LIMIT, quota.tryAcquire(1L, words(1)).decision());
+
+		quota.refund(1L, charge);
+
+		assertEquals(QuotaService.Decision.ALLOWED, quota.tryAcquire(1L, words(10)).decision());
+	}
+
+	@Test
+	void refundingARefusedChargeChangesNothing() {
+		QuotaService quota = quota(100, 10, 100);
+		quota.tryAcquire(1L, words(10));
+
+		quota.refund(1L, quota.tryAcquire(1L, words(5)));
+
+		assertEquals(QuotaService.Decision.MINUTE_LIMIT, quota.tryAcquire(1L, words(1)).decision());
+	}
+
+	@Test
+	void savesTheDailyTotalsOnFlush() {
+		QuotaService quota = quota(100, 100, 100);
+		quota.tryAcquire(1L, words(3));
+		quota.tryAcquire(1L, words(4));
+
+		quota.flush();
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<UserQuota>> saved = ArgumentCaptor.forClass(List.class);
+		verify(repository).saveAll(saved.capture());
+		UserQuota row = saved.getValue().get(0);
+		assertEquals(1L, row.getChatId());
+		assertEquals(LocalDate.now(), row.getDay());
+		assertEquals(7, row.getWordsUsed());
+	}
+
+	@Test
+	void flushSkipsUsersWithoutNewUsage() {
+		QuotaService quota = quota(100, 100, 100);
+		quota.tryAcquire(1L, words(3));
+		quota.flush();
+
+		quota.flush();
+
+		verify(repository).saveAll(anyList());
+	}
+
+	@Test
+	void aRestartKeepsTodaysUsage() {
+		when(repository.findById(1L)).thenReturn(Optional.of(
+				new UserQuota(1L, LocalDate.now(), 8, 100, Instant.now())));
+		QuotaService quota = quota(100, 100, 10);
+
+		assertEquals(QuotaService.Decision.DAILY_LIMIT, quota.tryAcquire(1L, words(3)).decision());
+		assertEquals(QuotaService.Decision.ALLOWED, quota.tryAcquire(1L, words(2)).decision());
+	}
+
+	@Test
+	void usageSavedOnAnotherDayIsIgnored() {
+		when(repository.findById(1L)).thenReturn(Optional.of(
+				new UserQuota(1L, LocalDate.now().minusDays(1), 10, 100, Instant.now())));
+		QuotaService quota = quota(100, 100, 10);
+
+		assertEquals(QuotaService.Decision.ALLOWED, quota.tryAcquire(1L, words(10)).decision());
+	}
+
+	private QuotaService quota(int maxWordsPerRequest, long wordsPerMinute, long wordsPerDay) {
+		return new QuotaService(repository, new SimpleMeterRegistry(), maxWordsPerRequest,
+				wordsPerMinute, 1_000_000, wordsPerDay, 1_000_000);
+	}
+
+	private static List<String> words(int count) {
+		return IntStream.range(0, count).mapToObj(i -> "word" + i).toList();
+	}
+}
@@ -0,0 +1,131 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.SheetRows;
+import com.example.TelegramWordsBot.dto.SyncStatus;
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.exception.SyncLeaseLostException;
+import com.example.TelegramWordsBot.model.SheetSync;
+import com.example.TelegramWordsBot.repository.SheetSyncRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SheetSyncServiceTest {
+
+	private final SheetSyncRepository repository = mock(SheetSyncRepository.class);
+	private final GoogleSheetsService googleSheetsService = mock(GoogleSheetsService.class);
+	private final ReviewService reviewService = mock(ReviewService.class);
+
+	private SheetSyncService service;
+
+	@BeforeEach
+	void setUp() {
+		WordJobService wordJobService = mock(WordJobService.class);
+		when(wordJobService.getInstanceId()).thenReturn("me");
+		service = new SheetSyncService(repository, googleSheetsService, reviewService, wordJobService,
+				new SimpleMeterRegistry(), 2, Duration.ofSeconds(60), 3);
+		when(repository.saveIfHeld(any(), eq("me"))).thenReturn(1);
+	}
+
+	@Test
+	void movesTheCursorWhileTheLeaseIsHeld() {
+		SheetSync sync = sync();
+		when(googleSheetsService.readRows("sheet", 3, 2)).thenReturn(new SheetRows(rows("apple", "pear"), 2, false));
+
+		assertFalse(service.importWindow(sync));
+
+		assertEquals(5, sync.getNextRow());
+		assertEquals(2, sync.getRowsImported());
+		assertEquals(SyncStatus.RUNNING, sync.getStatus());
+		verify(repository).saveIfHeld(sync, "me");
+		verify(repository, never()).save(any());
+	}
+
+	@Test
+	void stopsOnceAnotherInstanceTookTheSyncOver() {
+		SheetSync sync = sync();
+		when(googleSheetsService.readRows("sheet", 3, 2)).thenReturn(new SheetRows(rows("apple"), 1, true));
+		when(repository.saveIfHeld(any(), eq("me"))).thenReturn(0);
+
+		assertThrows(SyncLeaseLostException.class, () -> service.importWindow(sync));
+
+		verify(repository, never()).save(any());
+	}
+
+	@Test
+	void failingATakenOverSyncLeavesTheNewOwnerAlone() {
+		SheetSync sync = sync();
+		when(repository.saveIfHeld(any(), eq("me"))).thenReturn(0);
+
+		service.markFailed(sync, new IllegalStateException("boom"));
+
+		verify(repository, never()).save(any());
+	}
+
+	@Test
+	void savesTheWindowAgainAfterADuplicateCard() {
+		SheetSync sync = sync();
+		List<WordData> words = rows("apple");
+		when(googleSheetsService.readRows("sheet", 3, 2)).thenReturn(new SheetRows(words, 1, true));
+		doThrow(new DataIntegrityViolationException("Duplicate entry"))
+				.doNothing()
+				.when(reviewService).saveWords(42L, words);
+
+		assertTrue(service.importWindow(sync));
+
+		verify(reviewService, times(2)).saveWords(42L, words);
+		assertEquals(SyncStatus.DONE, sync.getStatus());
+	}
+
+	@Test
+	void aSecondDuplicateFailsTheWindow() {
+		SheetSync sync = sync();
+		when(googleSheetsService.readRows(anyString(), anyInt(), anyInt())).thenReturn(new SheetRows(rows("apple"), 1, true));
+		doThrow(new DataIntegrityViolationException("Duplicate entry")).when(reviewService).saveWords(any(), any());
+
+		assertThrows(DataIntegrityViolationException.class, () -> service.importWindow(sync));
+
+		assertEquals(3, sync.getNextRow(), "the cursor stays before the window");
+		verify(repository, never()).saveIfHeld(any(), any());
+	}
+
+	private static SheetSync sync() {
+		SheetSync sync = new SheetSync();
+		sync.setChatId(42L);
+		sync.setSheetId("sheet");
+		sync.setStatus(SyncStatus.RUNNING);
+		sync.setNextRow(3);
+		sync.setAttempts(1);
+		sync.setLockedBy("me");
+		return sync;
+	}
+
+	private static List<WordData> rows(String... originals) {
+		return Arrays.stream(originals).map(original -> {
+			WordData row = new WordData();
+			row.setOriginal(original);
+			row.setTranslation("переклад");
+			return row;
+		}).toList();
+	}
+}
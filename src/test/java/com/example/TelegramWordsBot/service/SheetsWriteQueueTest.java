@@ -0,0 +1,194 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.exception.GoogleSheetsException;
+import com.example.TelegramWordsBot.util.TokenBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SheetsWriteQueueTest {
+
+	private final GoogleSheetsService sheets = mock(GoogleSheetsService.class);
+	private SheetsWriteQueue queue;
+
+	@AfterEach
+	void tearDown() {
+		queue.shutdown();
+	}
+
+	@Test
+	void coalescesWritesToOneSpreadsheetIntoOneAppend() throws Exception {
+		queue = queue(50, 5);
+		when(sheets.requestsPerWrite(anyString())).thenReturn(1);
+
+		CompletableFuture<Void> first = queue.enqueue("a", rows("apple", "pear"));
+		CompletableFuture<Void> second = queue.enqueue("a", rows("plum"));
+		queue.flush();
+
+		first.get(5, TimeUnit.SECONDS);
+		second.get(5, TimeUnit.SECONDS);
+		verify(sheets).writeWords(rows("apple", "pear", "plum"), "a");
+	}
+
+	@Test
+	void runsOneAppendPerSpreadsheetAtATime() throws Exception {
+		queue = queue(50, 5);
+		when(sheets.requestsPerWrite(anyString())).thenReturn(1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return null;
+		}).doNothing().when(sheets).writeWords(any(), eq("a"));
+
+		CompletableFuture<Void> first = queue.enqueue("a", rows("apple"));
+		queue.flush();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		CompletableFuture<Void> second = queue.enqueue("a", rows("pear"));
+		queue.flush();
+		Thread.sleep(50);
+		verify(sheets, times(1)).writeWords(any(), eq("a"));
+
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		flushUntilDone(second);
+		second.get();
+		verify(sheets).writeWords(rows("pear"), "a");
+	}
+
+	@Test
+	void chargesEveryApiRequestOfAnAppend() throws Exception {
+		queue = queue(3, 5);
+		when(sheets.requestsPerWrite("a")).thenReturn(2);
+		when(sheets.requestsPerWrite("b")).thenReturn(2);
+
+		CompletableFuture<Void> a = queue.enqueue("a", rows("apple"));
+		CompletableFuture<Void> b = queue.enqueue("b", rows("pear"));
+		queue.flush();
+
+		a.get(5, TimeUnit.SECONDS);
+		assertFalse(b.isDone());
+		verify(sheets, never()).writeWords(any(), eq("b"));
+	}
+
+	@Test
+	void nextPassStartsWithTheSpreadsheetsLeftOutWhenTheQuotaRanOut() throws Exception {
+		queue = queue(2, 5);
+		ReflectionTestUtils.setField(queue, "rateLimiter", new TokenBucket(2, Duration.ofSeconds(1)));
+		when(sheets.requestsPerWrite(anyString())).thenReturn(1);
+
+		CompletableFuture<Void> a = queue.enqueue("a", rows("apple"));
+		CompletableFuture<Void> b = queue.enqueue("b", rows("pear"));
+		CompletableFuture<Void> c = queue.enqueue("c", rows("plum"));
+		queue.flush();
+		a.get(5, TimeUnit.SECONDS);
+		b.get(5, TimeUnit.SECONDS);
+		assertFalse(c.isDone());
+
+		CompletableFuture<Void> again = queue.enqueue("a", rows("fig"));
+		Thread.sleep(600);
+		queue.flush();
+
+		c.get(5, TimeUnit.SECONDS);
+		assertFalse(again.isDone(), "a waits for the next token after c had its turn");
+	}
+
+	@Test
+	void retriesThrottledAppendsAfterABackoff() throws Exception {
+		queue = queue(50, 5);
+		when(sheets.requestsPerWrite(anyString())).thenReturn(1);
+		doThrow(new GoogleSheetsException("quota", 429, null))
+				.doNothing()
+				.when(sheets).writeWords(any(), eq("a"));
+
+		CompletableFuture<Void> write = queue.enqueue("a", rows("apple"));
+		long start = System.nanoTime();
+		flushUntilDone(write);
+
+		write.get();
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100), "waited out the backoff");
+		verify(sheets, times(2)).writeWords(rows("apple"), "a");
+	}
+
+	@Test
+	void failsTheWritesOnceAttemptsRunOut() throws Exception {
+		queue = queue(50, 2);
+		when(sheets.requestsPerWrite(anyString())).thenReturn(1);
+		doThrow(new GoogleSheetsException("unavailable", 503, null)).when(sheets).writeWords(any(), eq("a"));
+
+		CompletableFuture<Void> write = queue.enqueue("a", rows("apple"));
+		flushUntilDone(write);
+
+		ExecutionException failure = assertThrows(ExecutionException.class, write::get);
+		verify(sheets, times(2)).writeWords(any(), eq("a"));
+		assertInstanceOf(GoogleSheetsException.class, failure.getCause());
+		assertEquals(503, ((GoogleSheetsException) failure.getCause()).getStatusCode());
+	}
+
+	@Test
+	void failsAtOnceOnErrorsThatAreNotThrottling() {
+		queue = queue(50, 5);
+		when(sheets.requestsPerWrite(anyString())).thenReturn(1);
+		doThrow(new GoogleSheetsException("forbidden", 403, null)).when(sheets).writeWords(any(), eq("a"));
+
+		CompletableFuture<Void> write = queue.enqueue("a", rows("apple"));
+		queue.flush();
+
+		assertThrows(ExecutionException.class, () -> write.get(5, TimeUnit.SECONDS));
+	}
+
+	private SheetsWriteQueue queue(int requestsPerMinute, int maxAttempts) {
+		doNothing().when(sheets).writeWords(any(), anyString());
+		return new SheetsWriteQueue(sheets, requestsPerMinute, maxAttempts, Duration.ofMillis(100),
+				Duration.ofSeconds(1), 4, new SimpleMeterRegistry());
+	}
+
+	/**
+	 * Flushes the way the scheduler does until the write is done.
+	 */
+	private void flushUntilDone(CompletableFuture<Void> write) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!write.isDone() && System.nanoTime() < deadline) {
+			queue.flush();
+			Thread.sleep(10);
+		}
+	}
+
+	private static List<WordData> rows(String... originals) {
+		return Arrays.stream(originals).map(original -> {
+			WordData row = new WordData();
+			row.setOriginal(original);
+			row.setTranslation("переклад");
+			return row;
+		}).toList();
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.util.WordNormalizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TranslationServiceTest {
+
+	@Test
+	void modelBoundLeavesOutWordsTheDictionaryOrTheCacheAnswers() {
+		FakeProvider model = new FakeProvider("model", Set.of("pear"));
+		TranslationService service = new TranslationService(
+				List.of(new FakeProvider("dictionary", Set.of("apple")), model), new SimpleMeterRegistry());
+
+		assertEquals(List.of("Plum"), service.modelBound(List.of("Apple", "pear", "Plum")));
+		assertEquals(List.of(List.of("pear", "Plum")), model.uncachedCalls);
+		assertEquals(List.of(), model.translateCalls, "nothing is sent to the model");
+	}
+
+	@Test
+	void modelBoundSkipsTheCacheWhenTheDictionaryAnswersEverything() {
+		FakeProvider model = new FakeProvider("model", Set.of());
+		TranslationService service = new TranslationService(
+				List.of(new FakeProvider("dictionary", Set.of("apple")), model), new SimpleMeterRegistry());
+
+		assertEquals(List.of(), service.modelBound(List.of("apple")));
+		assertEquals(List.of(), model.uncachedCalls);
+	}
+
+	/**
+	 * Answers the words it knows; for the last provider they stand for its cache.
+	 */
+	private static final class FakeProvider implements TranslationProvider {
+		private final String name;
+		private final Set<String> known;
+		private final List<List<String>> translateCalls = new ArrayList<>();
+		private final List<List<String>> uncachedCalls = new ArrayList<>();
+
+		private FakeProvider(String name, Set<String> known) {
+			this.name = name;
+			this.known = known;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public Map<String, WordData> translate(List<String> words) {
+			translateCalls.add(words);
+			Map<String, WordData> found = new HashMap<>();
+			for (String word : words) {
+				String key = WordNormalizer.normalize(word);
+				if (known.contains(key)) {
+					WordData data = new WordData();
+					data.setOriginal(word);
+					data.setTranslation("переклад");
+					found.put(key, data);
+				}
+			}
+			return found;
+		}
+
+		@Override
+		public List<String> uncached(List<String> words) {
+			uncachedCalls.add(words);
+			return words.stream().filter(word -> !known.contains(WordNormalizer.normalize(word))).toList();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.UserState;
+import com.example.TelegramWordsBot.model.User;
+import com.example.TelegramWordsBot.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the service against a real cache and write buffer, with the repository mocked.
+ */
+class UserServiceTest {
+
+	private final UserRepository repository = mock(UserRepository.class);
+	private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private UserSessionCache cache;
+	private UserWriteBuffer buffer;
+	private UserService service;
+
+	@BeforeEach
+	void setUp() {
+		cache = new UserSessionCache(100, Duration.ofMinutes(30), meterRegistry);
+		buffer = new UserWriteBuffer(repository, mock(PlatformTransactionManager.class), meterRegistry);
+		service = new UserService(repository, passwordEncoder, meterRegistry, cache, buffer);
+		ReflectionTestUtils.setField(service, "secretKey", "open sesame");
+		when(repository.findByChatId(any())).thenReturn(Optional.empty());
+	}
+
+	@Test
+	void newUserIsBufferedInsteadOfInserted() {
+		User user = service.findOrCreate(1L);
+
+		assertEquals(UserState.WAITING_FOR_AUTH_KEY, user.getUserState());
+		assertEquals(UserState.WAITING_FOR_AUTH_KEY, buffer.get(1L).getUserState());
+		verify(repository, never()).save(any());
+	}
+
+	@Test
+	void findsBufferedUsersBeforeTheTable() {
+		service.setState(1L, UserState.IDLE);
+		cache.invalidate(1L);
+
+		assertEquals(UserState.IDLE, service.findOrCreate(1L).getUserState());
+		verify(repository, times(1)).findByChatId(1L);
+	}
+
+	@Test
+	void servesKnownUsersFromTheCache() {
+		service.findOrCreate(1L);
+		service.findOrCreate(1L);
+
+		verify(repository, times(1)).findByChatId(1L);
+	}
+
+	@Test
+	void authorizationIsBufferedAndItsHashNeedsNoRecheck() {
+		when(passwordEncoder.encode("open sesame")).thenReturn("hash");
+
+		assertFalse(service.authorize(1L, "wrong"));
+		assertTrue(service.authorize(1L, "open sesame"));
+
+		User user = buffer.get(1L);
+		assertEquals(UserState.IDLE, user.getUserState());
+		assertEquals("hash", user.getAuthKey());
+		assertTrue(service.isAuthorized(user));
+		assertTrue(service.isAuthorized(user));
+		verify(passwordEncoder, never()).matches(anyString(), anyString());
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.UserState;
+import com.example.TelegramWordsBot.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserSessionCacheTest {
+
+	@Test
+	void handsOutCopiesSoCallersDoNotShareAUser() {
+		UserSessionCache cache = cache(10, Duration.ofMinutes(30));
+		User user = user(1L);
+		cache.put(user);
+		user.setSheetId("changed before get");
+
+		User first = cache.get(1L);
+		User second = cache.get(1L);
+		first.setUserState(UserState.REVIEWING);
+
+		assertNotSame(first, second);
+		assertEquals(UserState.IDLE, second.getUserState());
+		assertEquals("sheet", cache.get(1L).getSheetId());
+	}
+
+	@Test
+	void aChangeIsSeenOnceItIsPut() {
+		UserSessionCache cache = cache(10, Duration.ofMinutes(30));
+		cache.put(user(1L));
+
+		User changed = cache.get(1L);
+		changed.setUserState(UserState.REVIEWING);
+		cache.put(changed);
+
+		assertEquals(UserState.REVIEWING, cache.get(1L).getUserState());
+	}
+
+	@Test
+	void evictsUsersIdleLongerThanTheTimeout() throws InterruptedException {
+		UserSessionCache cache = cache(10, Duration.ofMillis(100));
+		cache.put(user(1L));
+		cache.put(user(2L));
+
+		Thread.sleep(150);
+		cache.get(2L);
+		cache.evictIdle();
+
+		assertNull(cache.get(1L));
+		assertNotNull(cache.get(2L));
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedBeyondMaxSize() throws InterruptedException {
+		UserSessionCache cache = cache(2, Duration.ofMinutes(30));
+		cache.put(user(1L));
+		Thread.sleep(2);
+		cache.put(user(2L));
+		Thread.sleep(2);
+		cache.get(1L);
+
+		cache.put(user(3L));
+
+		assertNotNull(cache.get(1L));
+		assertNull(cache.get(2L));
+		assertNotNull(cache.get(3L));
+	}
+
+	@Test
+	void invalidatesMatchingChats() {
+		UserSessionCache cache = cache(10, Duration.ofMinutes(30));
+		cache.put(user(1L));
+		cache.put(user(2L));
+
+		cache.invalidateIf(chatId -> chatId % 2 == 0);
+
+		assertNotNull(cache.get(1L));
+		assertNull(cache.get(2L));
+	}
+
+	private static UserSessionCache cache(int maxSize, Duration idleTimeout) {
+		return new UserSessionCache(maxSize, idleTimeout, new SimpleMeterRegistry());
+	}
+
+	private static User user(long chatId) {
+		return new User(chatId, UserState.IDLE, "sheet", "hash");
+	}
+}
@@ -0,0 +1,125 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.UserState;
+import com.example.TelegramWordsBot.model.User;
+import com.example.TelegramWordsBot.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserWriteBufferTest {
+
+	private final UserRepository repository = mock(UserRepository.class);
+	private final EntityManager entityManager = mock(EntityManager.class);
+	private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+	private UserWriteBuffer buffer;
+
+	@BeforeEach
+	void setUp() {
+		when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		buffer = new UserWriteBuffer(repository, transactionManager, new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(buffer, "entityManager", entityManager);
+	}
+
+	@Test
+	void writesOnlyTheLatestChangeOfAUser() {
+		User managed = new User(1L, UserState.WAITING_FOR_AUTH_KEY, null, null);
+		when(repository.findAllById(anyIterable())).thenReturn(List.of(managed));
+
+		buffer.enqueue(new User(1L, UserState.IDLE, null, "hash"));
+		buffer.enqueue(new User(1L, UserState.WAITING_FOR_SHEET_ID, null, "hash"));
+		buffer.flush();
+
+		assertEquals(UserState.WAITING_FOR_SHEET_ID, managed.getUserState());
+		assertEquals("hash", managed.getAuthKey());
+		verify(entityManager, never()).persist(any());
+		verify(transactionManager).commit(any());
+		assertNull(buffer.get(1L));
+	}
+
+	@Test
+	void insertsUsersWithoutARow() {
+		when(repository.findAllById(anyIterable())).thenReturn(List.of());
+
+		buffer.enqueue(new User(2L, UserState.WAITING_FOR_AUTH_KEY, null, null));
+		buffer.flush();
+
+		ArgumentCaptor<User> inserted = ArgumentCaptor.forClass(User.class);
+		verify(entityManager).persist(inserted.capture());
+		assertEquals(2L, inserted.getValue().getChatId());
+	}
+
+	@Test
+	void keepsChangesReadableWhileTheyAreBeingWritten() {
+		AtomicReference<User> duringWrite = new AtomicReference<>();
+		when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			duringWrite.set(buffer.get(1L));
+			return List.of();
+		});
+
+		buffer.enqueue(new User(1L, UserState.IDLE, "sheet", null));
+		buffer.flush();
+
+		assertEquals("sheet", duringWrite.get().getSheetId());
+	}
+
+	@Test
+	void requeuesTheBatchWhenTheFlushFails() {
+		when(repository.findAllById(anyIterable()))
+				.thenThrow(new IllegalStateException("connection lost"))
+				.thenReturn(List.of());
+
+		buffer.enqueue(new User(1L, UserState.IDLE, "sheet", null));
+		buffer.flush();
+
+		verify(transactionManager).rollback(any());
+		assertEquals("sheet", buffer.get(1L).getSheetId());
+
+		buffer.flush();
+		verify(entityManager).persist(any());
+		assertNull(buffer.get(1L));
+	}
+
+	@Test
+	void aChangeMadeDuringAFailedFlushWinsOverTheRequeuedOne() {
+		when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			buffer.enqueue(new User(1L, UserState.IDLE, "newer", null));
+			throw new IllegalStateException("connection lost");
+		});
+
+		buffer.enqueue(new User(1L, UserState.IDLE, "older", null));
+		buffer.flush();
+
+		assertEquals("newer", buffer.get(1L).getSheetId());
+		verify(repository, times(1)).findAllById(anyIterable());
+	}
+
+	@Test
+	void returnsCopiesSoCallersCannotChangeBufferedRows() {
+		User user = new User(1L, UserState.IDLE, "sheet", null);
+		buffer.enqueue(user);
+		user.setSheetId("changed");
+		buffer.get(1L).setSheetId("changed too");
+
+		assertEquals("sheet", buffer.get(1L).getSheetId());
+	}
+}
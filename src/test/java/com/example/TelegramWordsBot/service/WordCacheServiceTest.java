@@ -0,0 +1,138 @@
+package com.example.TelegramWordsBot.service;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.example.TelegramWordsBot.model.WordTranslation;
+import com.example.TelegramWordsBot.repository.WordTranslationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WordCacheServiceTest {
+
+	private static final Duration DB_TTL = Duration.ofDays(90);
+
+	private final WordTranslationRepository repository = mock(WordTranslationRepository.class);
+
+	@BeforeEach
+	void setUp() {
+		when(repository.findCreatedSince(anyCollection(), any())).thenReturn(List.of());
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedBeyondMaxSize() {
+		WordCacheService cache = cache(2, Duration.ofHours(24));
+		cache.putAll(Map.of("apple", word("яблуко")));
+		cache.putAll(Map.of("pear", word("груша")));
+		cache.getAll(List.of("apple"));
+
+		cache.putAll(Map.of("plum", word("слива")));
+		clearInvocations(repository);
+
+		assertEquals(Set.of("apple", "plum"), cache.getAll(List.of("apple", "pear", "plum")).keySet());
+		assertEquals(2, cache.getMemorySize());
+		verify(repository).findCreatedSince(eq(Set.of("pear")), any());
+	}
+
+	@Test
+	void wordsLeaveMemoryAfterTheTtl() throws InterruptedException {
+		WordCacheService cache = cache(10, Duration.ofMillis(100));
+		cache.putAll(Map.of("apple", word("яблуко")));
+		assertEquals(Set.of("apple"), cache.getAll(List.of("apple")).keySet());
+
+		Thread.sleep(150);
+
+		assertTrue(cache.getAll(List.of("apple")).isEmpty());
+		assertEquals(0, cache.getMemorySize());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	void asksTheTableOnlyForRowsWithinTheDbTtl() {
+		WordCacheService cache = cache(10, Duration.ofHours(24));
+
+		cache.getAll(List.of("apple"));
+
+		ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+		verify(repository).findCreatedSince(eq(Set.of("apple")), since.capture());
+		assertNear(Instant.now().minus(DB_TTL), since.getValue());
+	}
+
+	@Test
+	void rowsFromTheTableLeaveMemoryWhenTheyExpire() throws InterruptedException {
+		WordCacheService cache = cache(10, Duration.ofHours(24));
+		Instant almostExpired = Instant.now().minus(DB_TTL).plusMillis(100);
+		when(repository.findCreatedSince(eq(Set.of("apple")), any()))
+				.thenReturn(List.of(new WordTranslation("apple", "яблуко", null, almostExpired)))
+				.thenReturn(List.of());
+		assertEquals("яблуко", cache.getAll(List.of("apple")).get("apple").getTranslation());
+
+		Thread.sleep(150);
+
+		assertTrue(cache.getAll(List.of("apple")).isEmpty());
+	}
+
+	@Test
+	void deleteExpiredDropsRowsOlderThanTheDbTtl() {
+		WordCacheService cache = cache(10, Duration.ofHours(24));
+
+		cache.deleteExpired();
+
+		ArgumentCaptor<Instant> before = ArgumentCaptor.forClass(Instant.class);
+		verify(repository).deleteCreatedBefore(before.capture());
+		assertNear(Instant.now().minus(DB_TTL), before.getValue());
+	}
+
+	@Test
+	void keysTooLongForTheTableStayInMemoryOnly() {
+		WordCacheService cache = cache(10, Duration.ofHours(24));
+		String tooLong = "a".repeat(256);
+
+		cache.putAll(Map.of(tooLong, word("довге")));
+
+		verify(repository).saveAll(List.of());
+		assertEquals(Set.of(tooLong), cache.getAll(List.of(tooLong)).keySet());
+	}
+
+	@Test
+	void cachedKeysAreNotCountedAsRequests() {
+		WordCacheService cache = cache(10, Duration.ofHours(24));
+		cache.putAll(Map.of("apple", word("яблуко")));
+
+		assertEquals(Set.of("apple"), cache.cachedKeys(List.of("apple", "pear")));
+
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	private WordCacheService cache(int maxSize, Duration ttl) {
+		return new WordCacheService(repository, maxSize, ttl, DB_TTL, new SimpleMeterRegistry());
+	}
+
+	private static WordData word(String translation) {
+		WordData data = new WordData();
+		data.setTranslation(translation);
+		return data;
+	}
+
+	private static void assertNear(Instant expected, Instant actual) {
+		assertTrue(Duration.between(expected, actual).abs().compareTo(Duration.ofSeconds(5)) < 0,
+				() -> "expected about " + expected + " but was " + actual);
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.TelegramWordsBot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonArrayStreamParserTest {
+
+	@Test
+	void emitsObjectsAsTheyCloseAcrossChunks() {
+		JsonArrayStreamParser parser = new JsonArrayStreamParser();
+		List<String> objects = new ArrayList<>();
+
+		objects.addAll(parser.feed("```json\n[{\"original\": \"apple\", \"transl"));
+		assertTrue(objects.isEmpty());
+
+		objects.addAll(parser.feed("ation\": \"яблуко\"}, {\"original\": \"get along\""));
+		assertEquals(List.of("{\"original\": \"apple\", \"translation\": \"яблуко\"}"), objects);
+
+		objects.addAll(parser.feed(", \"translation\": \"ладнати\"}]\n```"));
+		assertEquals(2, objects.size());
+		assertEquals("{\"original\": \"get along\", \"translation\": \"ладнати\"}", objects.get(1));
+	}
+
+	@Test
+	void ignoresBracesAndQuotesInsideStrings() {
+		JsonArrayStreamParser parser = new JsonArrayStreamParser();
+
+		List<String> objects = parser.feed("[{\"original\": \"a } \\\" {\"}]");
+
+		assertEquals(List.of("{\"original\": \"a } \\\" {\"}"), objects);
+	}
+}
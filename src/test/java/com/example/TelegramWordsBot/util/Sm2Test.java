@@ -0,0 +1,31 @@
+package com.example.TelegramWordsBot.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Sm2Test {
+
+	@Test
+	void growsIntervalWithCorrectAnswers() {
+		Sm2.Schedule first = Sm2.next(Sm2.Schedule.initial(), 4);
+		Sm2.Schedule second = Sm2.next(first, 4);
+		Sm2.Schedule third = Sm2.next(second, 4);
+
+		assertEquals(1, first.intervalDays());
+		assertEquals(6, second.intervalDays());
+		assertEquals(15, third.intervalDays());
+		assertEquals(2.5, third.ease(), 1e-9);
+	}
+
+	@Test
+	void startsOverAfterAMiss() {
+		Sm2.Schedule learned = new Sm2.Schedule(2.5, 15, 3);
+
+		Sm2.Schedule missed = Sm2.next(learned, 1);
+		Sm2.Schedule hard = Sm2.next(Sm2.next(learned, 3), 3);
+
+		assertEquals(new Sm2.Schedule(2.5, 1, 0), missed);
+		assertEquals(2.22, hard.ease(), 1e-9);
+	}
+}
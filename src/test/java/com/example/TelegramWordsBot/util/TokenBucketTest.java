@@ -0,0 +1,64 @@
+package com.example.TelegramWordsBot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+	@Test
+	void startsFullAndEmptiesAfterCapacityTokens() {
+		TokenBucket bucket = new TokenBucket(3, Duration.ofMinutes(1));
+
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+		assertTrue(bucket.timeToNextToken().compareTo(Duration.ofSeconds(19)) > 0);
+	}
+
+	@Test
+	void refillsEvenlyOverThePeriod() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(2, Duration.ofMillis(400));
+		bucket.tryAcquire(2);
+		assertFalse(bucket.tryAcquire());
+
+		Thread.sleep(250);
+
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+	}
+
+	@Test
+	void takesSeveralTokensAtOnceOrNone() {
+		TokenBucket bucket = new TokenBucket(3, Duration.ofMinutes(1));
+
+		assertTrue(bucket.tryAcquire(2));
+		assertFalse(bucket.tryAcquire(2));
+		assertTrue(bucket.tryAcquire(1));
+	}
+
+	@Test
+	void askingForMoreThanCapacityTakesAFullBucket() {
+		TokenBucket bucket = new TokenBucket(2, Duration.ofMinutes(1));
+
+		assertTrue(bucket.tryAcquire(5));
+		assertFalse(bucket.tryAcquire());
+	}
+
+	@Test
+	void reportsNoWaitWhileTokensAreLeft() {
+		assertEquals(Duration.ZERO, new TokenBucket(1, Duration.ofSeconds(1)).timeToNextToken());
+	}
+
+	@Test
+	void rejectsNonPositiveSettings() {
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, Duration.ofSeconds(1)));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, Duration.ZERO));
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.TelegramWordsBot.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserMessageProcessorTest {
+
+	private UserMessageProcessor processor;
+
+	@AfterEach
+	void tearDown() {
+		processor.shutdown();
+	}
+
+	@Test
+	void runsTasksOfOneChatOneAtATimeInArrivalOrder() throws Exception {
+		processor = new UserMessageProcessor(4, 100, new SimpleMeterRegistry());
+		List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(50);
+
+		for (int i = 0; i < 50; i++) {
+			int task = i;
+			assertTrue(processor.submit(1L, () -> {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				order.add(task);
+				sleep(1);
+				inFlight.decrementAndGet();
+				done.countDown();
+			}));
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(IntStream.range(0, 50).boxed().toList(), order);
+		assertEquals(1, maxInFlight.get());
+	}
+
+	@Test
+	void rejectsOnceTheChatQueueIsFull() throws Exception {
+		processor = new UserMessageProcessor(2, 2, new SimpleMeterRegistry());
+		CountDownLatch release = new CountDownLatch(1);
+
+		assertTrue(processor.submit(1L, () -> await(release)));
+		assertTrue(processor.submit(1L, () -> {}));
+		assertTrue(processor.submit(1L, () -> {}));
+		assertFalse(processor.submit(1L, () -> {}));
+		assertTrue(processor.submit(2L, () -> {}), "other chats have their own queue");
+
+		release.countDown();
+	}
+
+	@Test
+	void drainReportsFinishedCutOffAndDroppedChats() throws Exception {
+		processor = new UserMessageProcessor(1, 2, new SimpleMeterRegistry());
+		CountDownLatch started = new CountDownLatch(1);
+
+		assertTrue(processor.submit(1L, () -> {
+			started.countDown();
+			await(new CountDownLatch(1));
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertTrue(processor.submit(2L, () -> {}));
+
+		UserMessageProcessor.DrainResult result = processor.drain(Duration.ofMillis(100), Duration.ofSeconds(5));
+
+		assertEquals(new UserMessageProcessor.DrainResult(1, 2, 0, Set.of(2L)), result);
+		assertTrue(processor.isDraining());
+		assertFalse(processor.submit(3L, () -> {}));
+	}
+
+	@Test
+	void drainWaitsForQueuedTasksWithinTheDeadline() throws Exception {
+		processor = new UserMessageProcessor(2, 2, new SimpleMeterRegistry());
+		AtomicInteger ran = new AtomicInteger();
+
+		for (long chatId = 1; chatId <= 3; chatId++) {
+			processor.submit(chatId, () -> {
+				sleep(50);
+				ran.incrementAndGet();
+			});
+		}
+
+		UserMessageProcessor.DrainResult result = processor.drain(Duration.ofSeconds(5), Duration.ofSeconds(1));
+
+		assertEquals(3, ran.get());
+		assertEquals(new UserMessageProcessor.DrainResult(3, 0, 0, Set.of()), result);
+	}
+
+	@Test
+	void submitAfterTheExecutorStoppedFailsSoftly() {
+		processor = new UserMessageProcessor(1, 2, new SimpleMeterRegistry());
+		processor.shutdown();
+
+		assertFalse(processor.submit(1L, () -> {}));
+		assertEquals(0, processor.getActiveChats());
+		assertEquals(0, processor.getQueuedTasks());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
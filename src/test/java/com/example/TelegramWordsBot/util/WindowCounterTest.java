@@ -0,0 +1,37 @@
+package com.example.TelegramWordsBot.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WindowCounterTest {
+
+	@Test
+	void refusesAmountsOverTheLimit() {
+		WindowCounter counter = new WindowCounter();
+
+		assertTrue(counter.tryAdd(10, 60, 100));
+		assertFalse(counter.tryAdd(10, 41, 100));
+		assertTrue(counter.tryAdd(10, 40, 100));
+		assertEquals(100, counter.get(10));
+
+		counter.subtract(10, 30);
+		assertEquals(70, counter.get(10));
+	}
+
+	@Test
+	void startsOverInANewWindow() {
+		WindowCounter counter = new WindowCounter();
+		counter.restore(10, 90);
+
+		assertFalse(counter.tryAdd(10, 20, 100));
+		assertTrue(counter.tryAdd(11, 20, 100));
+		assertEquals(0, counter.get(10));
+		assertEquals(20, counter.get(11));
+
+		counter.subtract(10, 20);
+		assertEquals(20, counter.get(11));
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.TelegramWordsBot.util;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WordDictionaryTest {
+
+	@Test
+	void findsNormalizedWords() throws IOException {
+		WordDictionary dictionary = load("# word\ttranslation\ttranscription\n"
+				+ "Apple\tяблуко\t[ˈæpl]\n"
+				+ "run  out of\tвичерпатися\n"
+				+ "apple\tяблуня\t[ˈæpl]\n"
+				+ "broken line\n");
+
+		assertEquals(2, dictionary.size());
+		WordData apple = dictionary.lookup("apple");
+		assertEquals("яблуко", apple.getTranslation());
+		assertEquals("[ˈæpl]", apple.getTranscription());
+		assertEquals("", dictionary.lookup("run out of").getTranscription());
+		assertNull(dictionary.lookup("pear"));
+	}
+
+	@Test
+	void handlesManyEntries() throws IOException {
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			source.append("word").append(i).append("\tслово ").append(i).append('\n');
+		}
+		WordDictionary dictionary = load(source.toString());
+
+		assertEquals(5000, dictionary.size());
+		for (int i = 0; i < 5000; i++) {
+			assertEquals("слово " + i, dictionary.lookup("word" + i).getTranslation());
+		}
+		assertNull(dictionary.lookup("word5000"));
+		assertNull(WordDictionary.empty().lookup("word1"));
+	}
+
+	private static WordDictionary load(String source) throws IOException {
+		return WordDictionary.load(new BufferedReader(new StringReader(source)));
+	}
+}
@@ -0,0 +1,52 @@
+package com.example.TelegramWordsBot.util;
+
+import com.example.TelegramWordsBot.dto.WordData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WordListParserTest {
+
+	@Test
+	void salvagesWellFormedObjects() {
+		String response = "```json\n[{\"original\":\"apple\",\"translation\":\"яблуко\",\"transcription\":\"[ˈæpl]\"},"
+				+ "{\"original\":\"pear\",\"translation\":},"
+				+ "{\"original\":\"run\",\"translation\":\"бігти\",\"transcription\":\"[rʌn]\"}]\n```";
+
+		WordListParser.Result result = new WordListParser(new ObjectMapper()).parseLenient(response);
+
+		assertEquals(List.of("apple", "run"), result.words().stream().map(WordData::getOriginal).toList());
+		assertEquals(1, result.malformed());
+	}
+
+	@Test
+	void parsesTabSeparatedLines() {
+		String response = "original\ttranslation\ttranscription\n"
+				+ "apple\tяблуко\t[ˈæpl]\n"
+				+ "pear\n"
+				+ "\n"
+				+ "run\tбігти";
+
+		WordListParser.Result result = WordListParser.parseTsv(response);
+
+		assertEquals(List.of("apple", "run"), result.words().stream().map(WordData::getOriginal).toList());
+		assertEquals("яблуко", result.words().get(0).getTranslation());
+		assertEquals("", result.words().get(1).getTranscription());
+		assertEquals(1, result.malformed());
+	}
+
+	@Test
+	void keepsWordsThatStartLikeTheHeader() {
+		String response = "Original\tTranslation\n"
+				+ "original\tоригінальний\t[əˈrɪdʒənl]\n"
+				+ "run\tбігти";
+
+		WordListParser.Result result = WordListParser.parseTsv(response);
+
+		assertEquals(List.of("original", "run"), result.words().stream().map(WordData::getOriginal).toList());
+		assertEquals(0, result.malformed());
+	}
+}
@@ -0,0 +1,23 @@
+package com.example.TelegramWordsBot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WordNormalizerTest {
+
+	@Test
+	void stripsListMarkersAndPunctuation() {
+		String message = "1. apple\n2) run out of;\n\n(3) \"despite\"\n- well-known!\n• don't, e.g.\nU.S.A.!\netc.";
+
+		assertEquals(List.of("apple", "run out of", "despite", "well-known", "don't", "e.g.", "U.S.A.", "etc"),
+				WordNormalizer.split(message));
+	}
+
+	@Test
+	void dropsRepeatsIgnoringCase() {
+		assertEquals(List.of("Apple", "PEAR"), WordNormalizer.split("Apple\napple.\n  PEAR \n pear, APPLE"));
+	}
+}